@@ -0,0 +1,73 @@
+package pe.edu.vallegrande.user_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validación del header Origin: lista estática, patrón de Gitpod y origen rechazado.
+ * {@code match*} evalúa los patrones en cada llamada; {@code resolve*} usa la caché de {@link CorsOriginResolver}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorsOriginBenchmark {
+
+    private static final String GITPOD_ORIGIN = "https://4200-vallegrande-msusersecur-3k2x9q1a7b8.ws-us117.gitpod.io";
+
+    private CorsOriginResolver resolver;
+
+    @Setup
+    public void setup() {
+        resolver = new CorsOriginResolver(
+                List.of("http://localhost:4200"),
+                List.of("^https://4200-[a-z0-9\\-]+\\.ws-[a-z0-9]+\\.gitpod\\.io$"),
+                1000,
+                new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public boolean matchStaticOrigin() {
+        return resolver.isAllowedOrigin("http://localhost:4200");
+    }
+
+    @Benchmark
+    public boolean matchGitpodOrigin() {
+        return resolver.isAllowedOrigin(GITPOD_ORIGIN);
+    }
+
+    @Benchmark
+    public boolean matchRejectedOrigin() {
+        return resolver.isAllowedOrigin("https://evil.example.com");
+    }
+
+    @Benchmark
+    public CorsConfiguration resolveStaticOrigin() {
+        return resolver.resolve("http://localhost:4200");
+    }
+
+    @Benchmark
+    public CorsConfiguration resolveGitpodOrigin() {
+        return resolver.resolve(GITPOD_ORIGIN);
+    }
+
+    @Benchmark
+    public CorsConfiguration resolveRejectedOrigin() {
+        return resolver.resolve("https://evil.example.com");
+    }
+}
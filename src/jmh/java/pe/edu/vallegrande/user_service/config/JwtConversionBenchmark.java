@@ -0,0 +1,61 @@
+package pe.edu.vallegrande.user_service.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construcción de las authorities a partir del claim {@code role}, en cada petición autenticada.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtConversionBenchmark {
+
+    private SecurityConfig securityConfig;
+    private Jwt withRole;
+    private Jwt withoutRole;
+
+    @Setup
+    public void setup() {
+        securityConfig = new SecurityConfig();
+        Instant now = Instant.now();
+        withRole = jwt(now).claim("role", "admin").build();
+        withoutRole = jwt(now).build();
+    }
+
+    @Benchmark
+    public Mono<CustomAuthenticationToken> convertWithRole() {
+        return securityConfig.convertJwt(withRole);
+    }
+
+    @Benchmark
+    public Mono<CustomAuthenticationToken> convertWithoutRole() {
+        return securityConfig.convertJwt(withoutRole);
+    }
+
+    private static Jwt.Builder jwt(Instant now) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .header("kid", "benchmark")
+                .subject("kF3nQ9xYzU1bR7cT0aLmP2sVw8e")
+                .issuer("https://securetoken.google.com/benchmark")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(3600));
+    }
+}
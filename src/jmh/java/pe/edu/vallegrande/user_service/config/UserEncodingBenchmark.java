@@ -0,0 +1,153 @@
+package pe.edu.vallegrande.user_service.config;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.model.UserStatus;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuesta de {@code GET /api/admin/users} con 10k y 100k usuarios: CPU de serialización con los encoders
+ * que registra {@link ResponseEncodingConfig} (JSON, Smile, CBOR) más la compresión que aplicaría Netty.
+ * El tamaño del cuerpo de cada combinación se imprime al preparar el benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserEncodingBenchmark {
+
+    private static final ResolvableType USER_TYPE = ResolvableType.forClass(UserDto.class);
+
+    @Param({"10000", "100000"})
+    private int users;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"none", "gzip", "zstd"})
+    private String compression;
+
+    private List<UserDto> list;
+    private AbstractJackson2Encoder encoder;
+    private MimeType mimeType;
+
+    @Setup
+    public void setup() throws IOException {
+        list = new ArrayList<>(users);
+        for (int i = 1; i <= users; i++) {
+            list.add(new UserDto(i, "kF3nQ9xYzU1bR7cT0aLm" + Integer.toString(i, 36), "María " + i, "Quispe Huamán",
+                    "DNI", String.format("%08d", 70000000 + i), "9" + String.format("%08d", i),
+                    "maria.quispe" + i + "@vallegrande.edu.pe", List.of("USER"),
+                    "https://example.supabase.co/storage/v1/object/public/images/users/" + Integer.toHexString(i)
+                            + "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15/original.png",
+                    UserStatus.ACTIVE, (long) i % 7));
+        }
+        switch (format) {
+            case "json" -> {
+                encoder = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json().build());
+                mimeType = MediaType.APPLICATION_JSON;
+            }
+            case "smile" -> {
+                encoder = new BinaryJacksonEncoders.Smile(Jackson2ObjectMapperBuilder.smile().build());
+                mimeType = BinaryJacksonEncoders.SMILE_MIME_TYPES[0];
+            }
+            case "cbor" -> {
+                encoder = new BinaryJacksonEncoders.Cbor(Jackson2ObjectMapperBuilder.cbor().build());
+                mimeType = MediaType.APPLICATION_CBOR;
+            }
+            default -> throw new IllegalArgumentException(format);
+        }
+        ByteCounter size = new ByteCounter();
+        try (OutputStream out = compress(size)) {
+            write(out);
+        }
+        System.out.printf("%n%s/%s, %d usuarios: %,d bytes%n", format, compression, users, size.count);
+    }
+
+    @Benchmark
+    public long encode() throws IOException {
+        ByteCounter size = new ByteCounter();
+        try (OutputStream out = compress(size)) {
+            write(out);
+        }
+        return size.count;
+    }
+
+    private void write(OutputStream out) {
+        encoder.encode(Flux.fromIterable(list), DefaultDataBufferFactory.sharedInstance, USER_TYPE, mimeType, Map.of())
+                .doOnNext(buffer -> {
+                    try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                        iterator.forEachRemaining(byteBuffer -> {
+                            try {
+                                if (byteBuffer.hasArray()) {
+                                    out.write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining());
+                                } else {
+                                    byte[] bytes = new byte[byteBuffer.remaining()];
+                                    byteBuffer.get(bytes);
+                                    out.write(bytes);
+                                }
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .blockLast();
+    }
+
+    // Mismos niveles que compression.* en application.yml
+    private OutputStream compress(OutputStream out) throws IOException {
+        return switch (compression) {
+            case "none" -> out;
+            case "gzip" -> new GZIPOutputStream(out, 8192);
+            case "zstd" -> new ZstdOutputStream(out, 3);
+            default -> throw new IllegalArgumentException(compression);
+        };
+    }
+
+    private static final class ByteCounter extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package pe.edu.vallegrande.user_service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pe.edu.vallegrande.user_service.dto.UserCreateDto;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parseo de la parte {@code user} del multipart de {@link AdminController#createUser}.
+ * {@code perRequestMapper} reproduce lo que hace el controlador (un ObjectMapper nuevo por petición);
+ * {@code sharedReader} sirve de referencia con un lector reutilizado.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserJsonParsingBenchmark {
+
+    private static final String USER_JSON = """
+            {"name":"María","lastName":"Quispe Huamán","documentType":"DNI","documentNumber":"71234567",
+             "cellPhone":"987654321","email":"maria.quispe@vallegrande.edu.pe","password":"S3gura!Contraseña2024",
+             "role":["USER"]}
+            """;
+
+    private ObjectReader sharedReader;
+
+    @Setup
+    public void setup() {
+        sharedReader = new ObjectMapper().readerFor(UserCreateDto.class);
+    }
+
+    @Benchmark
+    public UserCreateDto perRequestMapper() throws Exception {
+        return new ObjectMapper().readValue(USER_JSON, UserCreateDto.class);
+    }
+
+    @Benchmark
+    public UserCreateDto sharedReader() throws Exception {
+        return sharedReader.readValue(USER_JSON);
+    }
+}
@@ -0,0 +1,238 @@
+package pe.edu.vallegrande.user_service.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backend de identidad en memoria con el API REST de Identity Toolkit que usa el Firebase Admin SDK
+ * en modo emulador ({@code FIREBASE_AUTH_EMULATOR_HOST}): alta, consulta, actualización (incluidos
+ * los custom claims), borrado individual y por lotes, e importación. Así el servicio ejecuta las
+ * mismas llamadas del SDK (serialización, HTTP, executor) sin salir de la máquina; {@code latency}
+ * simula el tiempo de respuesta de Google.
+ */
+final class FakeIdentityServer implements AutoCloseable {
+
+    static final String PROJECT_ID = "load-test";
+
+    private static final String PREFIX = "/identitytoolkit.googleapis.com/v1/projects/" + PROJECT_ID + "/";
+    // Campos de la cuenta que se guardan tal cual; la contraseña y su hash se descartan
+    private static final String[] STORED_FIELDS = {"email", "displayName", "emailVerified", "customAttributes", "photoUrl", "phoneNumber"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, ObjectNode> accounts = new ConcurrentHashMap<>();
+    private final Map<String, String> uidsByEmail = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final Duration latency;
+    private final DisposableServer server;
+
+    FakeIdentityServer(Duration latency) {
+        this.latency = latency;
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    /**
+     * Valor para {@code FIREBASE_AUTH_EMULATOR_HOST}.
+     */
+    String emulatorHost() {
+        return "localhost:" + server.port();
+    }
+
+    /**
+     * Registra una cuenta ya existente (usuarios sembrados directamente en la base de datos).
+     */
+    void register(String uid, String email, String role) {
+        ObjectNode account = newAccount(uid);
+        account.put("email", email);
+        account.put("customAttributes", "{\"role\":\"" + role + "\"}");
+        store(account);
+    }
+
+    /**
+     * Número de llamadas recibidas por operación ({@code accounts}, {@code accounts:update}...).
+     */
+    Map<String, AtomicLong> calls() {
+        return calls;
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        String path = request.fullPath();
+        if (!path.startsWith(PREFIX)) {
+            return response.status(HttpResponseStatus.NOT_FOUND).send();
+        }
+        String operation = path.substring(PREFIX.length());
+        calls.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+
+        return request.receive().aggregate().asString()
+                .defaultIfEmpty("{}")
+                .map(body -> {
+                    try {
+                        return apply(operation, (ObjectNode) mapper.readTree(body));
+                    } catch (IdentityException e) {
+                        return error(e.getMessage());
+                    } catch (Exception e) {
+                        return error("INVALID_ARGUMENT : " + e.getMessage());
+                    }
+                })
+                .flatMap(reply -> {
+                    Mono<Void> send = response.status(reply.has("error") ? HttpResponseStatus.BAD_REQUEST : HttpResponseStatus.OK)
+                            .header("Content-Type", "application/json")
+                            .sendString(Mono.just(reply.toString()))
+                            .then();
+                    return latency.isZero() ? send : Mono.delay(latency).then(send);
+                });
+    }
+
+    private ObjectNode apply(String operation, ObjectNode body) {
+        return switch (operation) {
+            case "accounts" -> create(body);
+            case "accounts:lookup" -> lookup(body);
+            case "accounts:update" -> update(body);
+            case "accounts:delete" -> {
+                delete(required(body.path("localId").asText(null)));
+                yield mapper.createObjectNode();
+            }
+            case "accounts:batchDelete" -> {
+                body.path("localIds").forEach(uid -> remove(uid.asText()));
+                yield mapper.createObjectNode();
+            }
+            case "accounts:batchCreate" -> {
+                body.path("users").forEach(user -> store(copy(user, newAccount(user.path("localId").asText()))));
+                yield mapper.createObjectNode();
+            }
+            default -> throw new IdentityException("OPERATION_NOT_ALLOWED : " + operation);
+        };
+    }
+
+    private ObjectNode create(ObjectNode body) {
+        String email = body.path("email").asText(null);
+        if (email != null && uidsByEmail.containsKey(email)) {
+            throw new IdentityException("EMAIL_EXISTS");
+        }
+        String uid = body.hasNonNull("localId") ? body.get("localId").asText() : UUID.randomUUID().toString().replace("-", "");
+        if (accounts.containsKey(uid)) {
+            throw new IdentityException("DUPLICATE_LOCAL_ID");
+        }
+        store(copy(body, newAccount(uid)));
+        return mapper.createObjectNode().put("localId", uid);
+    }
+
+    private ObjectNode lookup(ObjectNode body) {
+        ArrayNode users = mapper.createArrayNode();
+        body.path("localId").forEach(uid -> {
+            ObjectNode account = accounts.get(uid.asText());
+            if (account != null) users.add(account);
+        });
+        body.path("email").forEach(email -> {
+            String uid = uidsByEmail.get(email.asText());
+            if (uid != null && accounts.containsKey(uid)) users.add(accounts.get(uid));
+        });
+        ObjectNode reply = mapper.createObjectNode();
+        if (!users.isEmpty()) reply.set("users", users);
+        return reply;
+    }
+
+    private ObjectNode update(ObjectNode body) {
+        String uid = required(body.path("localId").asText(null));
+        ObjectNode current = accounts.get(uid);
+        if (current == null) {
+            throw new IdentityException("USER_NOT_FOUND");
+        }
+        String email = body.path("email").asText(null);
+        if (email != null && !uid.equals(uidsByEmail.getOrDefault(email, uid))) {
+            throw new IdentityException("EMAIL_EXISTS");
+        }
+        ObjectNode updated = copy(body, current.deepCopy());
+        if (body.has("disableUser")) {
+            updated.put("disabled", body.get("disableUser").asBoolean());
+        }
+        body.path("deleteAttribute").forEach(attribute -> updated.remove(attribute.asText()));
+        store(updated);
+        return mapper.createObjectNode().put("localId", uid);
+    }
+
+    private void delete(String uid) {
+        if (!remove(uid)) {
+            throw new IdentityException("USER_NOT_FOUND");
+        }
+    }
+
+    private boolean remove(String uid) {
+        ObjectNode removed = accounts.remove(uid);
+        if (removed == null) return false;
+        if (removed.hasNonNull("email")) uidsByEmail.remove(removed.get("email").asText(), uid);
+        return true;
+    }
+
+    private void store(ObjectNode account) {
+        String uid = account.get("localId").asText();
+        ObjectNode previous = accounts.put(uid, account);
+        if (previous != null && previous.hasNonNull("email")) {
+            uidsByEmail.remove(previous.get("email").asText(), uid);
+        }
+        if (account.hasNonNull("email")) {
+            uidsByEmail.put(account.get("email").asText(), uid);
+        }
+    }
+
+    private ObjectNode newAccount(String uid) {
+        return mapper.createObjectNode()
+                .put("localId", required(uid))
+                .put("emailVerified", false)
+                .put("disabled", false)
+                .put("createdAt", String.valueOf(System.currentTimeMillis()));
+    }
+
+    private static ObjectNode copy(JsonNode source, ObjectNode target) {
+        for (String field : STORED_FIELDS) {
+            if (source.has(field)) target.set(field, source.get(field));
+        }
+        if (source.has("disabled")) target.set("disabled", source.get("disabled"));
+        return target;
+    }
+
+    private static String required(String uid) {
+        if (uid == null || uid.isBlank()) {
+            throw new IdentityException("MISSING_LOCAL_ID");
+        }
+        return uid;
+    }
+
+    private ObjectNode error(String message) {
+        ObjectNode error = mapper.createObjectNode()
+                .put("code", 400)
+                .put("message", message);
+        return (ObjectNode) mapper.createObjectNode().set("error", error);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    /**
+     * Error con el código de Identity Toolkit ({@code EMAIL_EXISTS}, {@code USER_NOT_FOUND}...) como mensaje.
+     */
+    private static class IdentityException extends RuntimeException {
+        IdentityException(String code) {
+            super(code);
+        }
+    }
+}
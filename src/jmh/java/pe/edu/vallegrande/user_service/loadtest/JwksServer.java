@@ -0,0 +1,86 @@
+package pe.edu.vallegrande.user_service.loadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Sustituto local del endpoint de claves de Firebase: publica un JWK set RSA generado al arrancar
+ * (con {@code Cache-Control: max-age}, como Google) y firma tokens RS256 con los claims que usa
+ * {@code SecurityConfig} ({@code sub} = UID, {@code email}, {@code role}).
+ */
+final class JwksServer implements AutoCloseable {
+
+    static final String ISSUER = "https://securetoken.google.com/" + FakeIdentityServer.PROJECT_ID;
+
+    private static final Duration TOKEN_TTL = Duration.ofHours(1);
+
+    private final RSAKey key;
+    private final RSASSASigner signer;
+    private final DisposableServer server;
+
+    JwksServer() throws JOSEException {
+        this.key = new RSAKeyGenerator(2048)
+                .keyID("load-test")
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+        this.signer = new RSASSASigner(key);
+        String jwks = new JWKSet(key.toPublicJWK()).toString();
+
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/jwks", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .header("Cache-Control", "public, max-age=3600")
+                        .sendString(Mono.just(jwks))))
+                .bindNow();
+    }
+
+    String jwkSetUri() {
+        return "http://localhost:" + server.port() + "/jwks";
+    }
+
+    /**
+     * Token válido durante una hora, igual que un ID token de Firebase.
+     */
+    String mint(String uid, String email, String role) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER)
+                .audience(FakeIdentityServer.PROJECT_ID)
+                .subject(uid)
+                .claim("email", email)
+                .claim("role", role)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(TOKEN_TTL)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        try {
+            jwt.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("No se pudo firmar el token: " + e.getMessage(), e);
+        }
+        return jwt.serialize();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
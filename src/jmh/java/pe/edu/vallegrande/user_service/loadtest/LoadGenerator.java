@@ -0,0 +1,154 @@
+package pe.edu.vallegrande.user_service.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Generador de carga de tasa fija (modelo abierto): lanza una petición cada {@code 1/rate} segundos
+ * aunque las anteriores no hayan terminado, hasta {@code maxInFlight} simultáneas. La latencia se mide
+ * desde el instante en que la petición debía salir, no desde que salió, para que una cola en el
+ * cliente no oculte la lentitud del servidor (omisión coordinada). Las peticiones que no caben en
+ * {@code maxInFlight} se descartan y se cuentan aparte.
+ */
+final class LoadGenerator {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final WebClient webClient;
+    private final int maxInFlight;
+
+    LoadGenerator(WebClient webClient, int maxInFlight) {
+        this.webClient = webClient;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Escenario: nombre y petición a ejecutar; el {@code Mono} devuelve el código de estado HTTP y, en los
+     * escenarios que procesan varios elementos por petición (p. ej. usuarios importados), cuántos se
+     * procesaron, para informar también de {@code unit}/s.
+     */
+    record Scenario(String name, String unit, Function<WebClient, Mono<Reply>> request) {
+
+        Scenario(String name, Function<WebClient, Mono<Integer>> request) {
+            this(name, null, client -> request.apply(client).map(status -> new Reply(status, 0)));
+        }
+    }
+
+    record Reply(int status, long items) {
+    }
+
+    /**
+     * Ejecuta el escenario a {@code rate} peticiones por segundo durante {@code duration}.
+     */
+    Result run(Scenario scenario, int rate, Duration duration) {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = duration.toNanos() / periodNanos;
+        Result result = new Result(scenario.name(), scenario.unit(), rate);
+
+        long start = System.nanoTime();
+        Flux.interval(Duration.ofNanos(periodNanos), Schedulers.parallel())
+                .take(total)
+                .onBackpressureDrop(tick -> result.dropped.increment())
+                .flatMap(tick -> {
+                    long intendedStart = start + (tick + 1) * periodNanos;
+                    // Se registra antes de completar: con doFinally blockLast podría volver sin la última muestra
+                    return scenario.request().apply(webClient)
+                            .doOnNext(reply -> {
+                                result.record(intendedStart);
+                                result.status(reply.status());
+                                result.items.add(reply.items());
+                            })
+                            .onErrorResume(e -> {
+                                result.record(intendedStart);
+                                result.errors.increment();
+                                return Mono.empty();
+                            });
+                }, maxInFlight)
+                .blockLast();
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Contadores y distribución de latencias de una ejecución.
+     */
+    static final class Result {
+
+        private final String scenario;
+        private final String unit;
+        private final int rate;
+        private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private long elapsedNanos;
+
+        private Result(String scenario, String unit, int rate) {
+            this.scenario = scenario;
+            this.unit = unit;
+            this.rate = rate;
+        }
+
+        private void record(long intendedStart) {
+            latency.recordValue(Math.min(MAX_LATENCY_NANOS, Math.max(0, System.nanoTime() - intendedStart)));
+        }
+
+        private void status(int status) {
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+
+        long completed() {
+            return latency.getTotalCount();
+        }
+
+        long successful() {
+            return statuses.entrySet().stream()
+                    .filter(entry -> entry.getKey() < 400)
+                    .mapToLong(entry -> entry.getValue().sum())
+                    .sum();
+        }
+
+        static void printHeader(PrintStream out) {
+            out.printf("%-20s %6s %8s %8s %7s %7s %9s %8s %8s %8s %8s %8s%n",
+                    "escenario", "rate", "enviadas", "2xx/3xx", "fallos", "descart", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        }
+
+        void print(PrintStream out) {
+            long failed = completed() - successful();
+            double seconds = elapsedNanos / 1e9;
+            out.printf("%-20s %6d %8d %8d %7d %7d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                    scenario, rate, completed(), successful(), failed, dropped.sum(), completed() / seconds,
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()));
+            if (unit != null) {
+                out.printf("%-20s   %s/s: %.1f (%d en total)%n", "", unit, items.sum() / seconds, items.sum());
+            }
+            if (failed > 0) {
+                Map<Integer, Long> byStatus = new TreeMap<>();
+                statuses.forEach((status, count) -> {
+                    if (status >= 400) byStatus.put(status, count.sum());
+                });
+                out.printf("%-20s   estados: %s, errores de conexión: %d%n", "", byStatus, errors.sum());
+            }
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package pe.edu.vallegrande.user_service.loadtest;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.internal.FirebaseProcessEnvironment;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import pe.edu.vallegrande.user_service.UserServiceApplication;
+import pe.edu.vallegrande.user_service.dto.BulkItemResultDto;
+import pe.edu.vallegrande.user_service.identity.InMemoryIdentityProvider;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Prueba de carga extremo a extremo sin dependencias externas: arranca la aplicación completa contra
+ * un PostgreSQL embebido, un JWKS local ({@link JwksServer}), un Supabase Storage simulado
+ * ({@link StubSupabaseServer}) y un backend de identidad en memoria al que el Firebase Admin SDK
+ * llama en modo emulador ({@link FakeIdentityServer}). Después recorre los escenarios de
+ * {@code UserController} y {@code AdminController} a tasa fija con {@link LoadGenerator} e imprime
+ * throughput y percentiles de latencia por escenario.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@load-test -Dload.rate=200 -Dload.duration=30s -Dload.scenarios=user.me,admin.get
+ * </pre>
+ *
+ * Propiedades (todas opcionales): {@code load.users} usuarios sembrados, {@code load.rate} peticiones/s
+ * ({@code load.rates=admin.create:5,...} para escenarios concretos), {@code load.duration} y {@code load.warmup} por
+ * escenario, {@code load.max-in-flight}, {@code load.scenarios} (por defecto todos) y
+ * {@code load.identity.latency} / {@code load.storage.latency} para simular la latencia de Firebase y Supabase.
+ * {@code admin.import} envía lotes CSV de {@code load.import.batch} usuarios (100 por defecto) e informa además
+ * de usuarios importados por segundo; su tasa se indica en lotes/s ({@code -Dload.rates=admin.import:1}).
+ * Con {@code load.identity=in-memory} la aplicación usa {@code InMemoryIdentityProvider} en lugar del SDK
+ * contra el emulador, para separar el coste del SDK del resto del servicio.
+ */
+public final class LoadTestHarness {
+
+    private static final String USER_EMAIL_DOMAIN = "@loadtest.local";
+    private static final String ADMIN_UID = "load-admin";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final int users;
+    private final int importBatch;
+    private final boolean inMemoryIdentity;
+    private final List<String> userTokens = new ArrayList<>();
+    private final AtomicInteger createdUsers = new AtomicInteger();
+    private String adminToken;
+    private byte[] profileImage;
+
+    private LoadTestHarness(int users, int importBatch, boolean inMemoryIdentity) {
+        this.users = users;
+        this.importBatch = importBatch;
+        this.inMemoryIdentity = inMemoryIdentity;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("load.users", 1000);
+        int importBatch = Integer.getInteger("load.import.batch", 100);
+        int rate = Integer.getInteger("load.rate", 100);
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("load.duration", "30s"));
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s"));
+        int maxInFlight = Integer.getInteger("load.max-in-flight", 256);
+        Duration identityLatency = DurationStyle.detectAndParse(System.getProperty("load.identity.latency", "0s"));
+        Duration storageLatency = DurationStyle.detectAndParse(System.getProperty("load.storage.latency", "0s"));
+        List<String> selected = list(System.getProperty("load.scenarios", ""));
+        String identityMode = System.getProperty("load.identity", "emulator");
+        if (!identityMode.equals("emulator") && !identityMode.equals("in-memory")) {
+            throw new IllegalArgumentException("load.identity debe ser emulator o in-memory: " + identityMode);
+        }
+        Map<String, Integer> rates = new HashMap<>();
+        for (String entry : list(System.getProperty("load.rates", ""))) {
+            String[] parts = entry.split(":");
+            rates.put(parts[0], Integer.parseInt(parts[1]));
+        }
+
+        new LoadTestHarness(users, importBatch, identityMode.equals("in-memory")).run(rate, rates, duration, warmup, maxInFlight, identityLatency, storageLatency, selected);
+    }
+
+    private void run(int rate, Map<String, Integer> rates, Duration duration, Duration warmup, int maxInFlight,
+                     Duration identityLatency, Duration storageLatency, List<String> selected) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             JwksServer jwks = new JwksServer();
+             StubSupabaseServer supabase = new StubSupabaseServer(storageLatency);
+             FakeIdentityServer identity = new FakeIdentityServer(identityLatency)) {
+
+            seed(postgres, identity);
+            if (!inMemoryIdentity) initializeFirebase(identity);
+            mintTokens(jwks);
+            profileImage = sampleImage();
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class)
+                    .run(arguments(postgres, jwks, supabase, identityLatency))) {
+                if (inMemoryIdentity) registerInMemory(context.getBean(InMemoryIdentityProvider.class));
+                WebServer webServer = ((ReactiveWebServerApplicationContext) context).getWebServer();
+                ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                        .maxConnections(maxInFlight)
+                        .pendingAcquireMaxCount(-1)
+                        .build();
+                WebClient webClient = WebClient.builder()
+                        .baseUrl("http://localhost:" + webServer.getPort())
+                        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                        .build();
+                LoadGenerator generator = new LoadGenerator(webClient, maxInFlight);
+
+                Map<String, LoadGenerator.Scenario> scenarios = scenarios();
+                List<String> names = selected.isEmpty() ? List.copyOf(scenarios.keySet()) : selected;
+                System.out.printf("%nUsuarios sembrados: %d, duración %s (+%s de calentamiento) por escenario, máx. %d en vuelo%n%n",
+                        users, duration, warmup, maxInFlight);
+
+                List<LoadGenerator.Result> results = new ArrayList<>();
+                for (String name : names) {
+                    LoadGenerator.Scenario scenario = scenarios.get(name);
+                    if (scenario == null) {
+                        throw new IllegalArgumentException("Escenario desconocido: " + name + " (disponibles: " + scenarios.keySet() + ")");
+                    }
+                    int scenarioRate = rates.getOrDefault(name, rate);
+                    if (!warmup.isZero()) generator.run(scenario, scenarioRate, warmup);
+                    LoadGenerator.Result result = generator.run(scenario, scenarioRate, duration);
+                    results.add(result);
+                    LoadGenerator.Result.printHeader(System.out);
+                    result.print(System.out);
+                }
+
+                System.out.println();
+                LoadGenerator.Result.printHeader(System.out);
+                results.forEach(result -> result.print(System.out));
+                System.out.printf("%nIdentidad: %s%nSupabase: %d subidas, %d bytes%n",
+                        inMemoryIdentity ? "en memoria" : identity.calls(), supabase.uploads(), supabase.uploadedBytes());
+                connections.disposeLater().block();
+            }
+        }
+    }
+
+    /**
+     * Escenarios por nombre. Los de usuario reparten la carga entre todos los usuarios sembrados
+     * (cada uno con su token, como en producción) y los de administración usan el mismo token admin.
+     */
+    private Map<String, LoadGenerator.Scenario> scenarios() {
+        Map<String, LoadGenerator.Scenario> scenarios = new LinkedHashMap<>();
+        add(scenarios, "user.me", client -> status(client.get().uri("/api/users/me")
+                .header(HttpHeaders.AUTHORIZATION, bearer(randomUserToken()))));
+        add(scenarios, "user.me-fields", client -> status(client.get().uri("/api/users/me?fields=id,name,email,profileImageThumbnail")
+                .header(HttpHeaders.AUTHORIZATION, bearer(randomUserToken()))));
+        add(scenarios, "user.update", client -> {
+            int user = randomUser();
+            return status(client.put().uri("/api/users/me")
+                    .header(HttpHeaders.AUTHORIZATION, bearer(userTokens.get(user - 1)))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("name", "Usuario " + ThreadLocalRandom.current().nextInt(1000),
+                            "lastName", "Carga " + user,
+                            "documentType", "DNI",
+                            "documentNumber", String.valueOf(70000000 + user),
+                            "cellPhone", "900000000",
+                            "profileImage", "")));
+        });
+        add(scenarios, "admin.get", client -> status(client.get().uri("/api/admin/users/{id}", randomUser())
+                .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))));
+        add(scenarios, "admin.by-email", client -> status(client.get().uri("/api/admin/users/email/{email}", email(randomUser()))
+                .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))));
+        add(scenarios, "admin.email-exists", client -> status(client.get().uri("/api/admin/users/email-exists/{email}",
+                        ThreadLocalRandom.current().nextBoolean() ? email(randomUser()) : "nadie" + randomUser() + USER_EMAIL_DOMAIN)
+                .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))));
+        add(scenarios, "admin.page", client -> status(client.get()
+                .uri("/api/admin/users/page?after={after}&limit=50", ThreadLocalRandom.current().nextInt(Math.max(1, users - 50)))
+                .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))));
+        add(scenarios, "admin.search", client -> status(client.get().uri("/api/admin/users/search?q={q}&limit=20", "carga " + randomUser())
+                .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))));
+        add(scenarios, "admin.update-image", client -> {
+            int user = randomUser();
+            return status(client.put().uri("/api/admin/users/{id}", user)
+                    .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))
+                    .body(BodyInserters.fromMultipartData(multipart(Map.of("name", "Usuario", "lastName", "Carga " + user,
+                            "documentType", "DNI", "documentNumber", String.valueOf(70000000 + user),
+                            "cellPhone", "900000000", "role", List.of("USER")), true))));
+        });
+        add(scenarios, "admin.create", client -> {
+            int n = createdUsers.incrementAndGet();
+            return status(client.post().uri("/api/admin/users")
+                    .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))
+                    .body(BodyInserters.fromMultipartData(multipart(Map.of("name", "Nuevo", "lastName", "Carga " + n,
+                            "documentType", "DNI", "documentNumber", String.valueOf(80000000 + n), "cellPhone", "900000000",
+                            "email", "nuevo" + n + "." + System.nanoTime() + USER_EMAIL_DOMAIN,
+                            "password", "Password-" + n, "role", List.of("USER")), false))));
+        });
+        scenarios.put("admin.import", new LoadGenerator.Scenario("admin.import", "usuarios", client -> client.post()
+                .uri("/api/admin/users/import")
+                .header(HttpHeaders.AUTHORIZATION, bearer(adminToken))
+                .contentType(TEXT_CSV)
+                .bodyValue(importCsv())
+                .exchangeToMono(response -> response.statusCode().isError()
+                        ? response.releaseBody().thenReturn(new LoadGenerator.Reply(response.statusCode().value(), 0))
+                        // La respuesta es 200 aunque fallen filas: solo cuentan las importadas
+                        : response.bodyToFlux(BulkItemResultDto.class)
+                                .filter(BulkItemResultDto::isSuccess)
+                                .count()
+                                .map(imported -> new LoadGenerator.Reply(response.statusCode().value(), imported)))));
+        return scenarios;
+    }
+
+    /**
+     * Lote CSV de {@code load.import.batch} usuarios nuevos, con emails únicos en toda la ejecución.
+     */
+    private String importCsv() {
+        StringBuilder csv = new StringBuilder("name,lastName,documentType,documentNumber,cellPhone,email,password,role\n");
+        for (int i = 0; i < importBatch; i++) {
+            int n = createdUsers.incrementAndGet();
+            csv.append("Importado,Carga ").append(n).append(",DNI,").append(80000000 + n).append(",900000000,import")
+                    .append(n).append('.').append(System.nanoTime()).append(USER_EMAIL_DOMAIN)
+                    .append(",Password-").append(n).append(",USER\n");
+        }
+        return csv.toString();
+    }
+
+    private static void add(Map<String, LoadGenerator.Scenario> scenarios, String name, Function<WebClient, Mono<Integer>> request) {
+        scenarios.put(name, new LoadGenerator.Scenario(name, request));
+    }
+
+    private static Mono<Integer> status(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()));
+    }
+
+    private MultiValueMap<String, HttpEntity<?>> multipart(Map<String, Object> user, boolean withImage) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("user", user, MediaType.APPLICATION_JSON);
+        if (withImage) {
+            builder.part("file", new ByteArrayResource(profileImage) {
+                @Override
+                public String getFilename() {
+                    return "perfil.png";
+                }
+            }, MediaType.IMAGE_PNG);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Tabla users con los usuarios de carga (IDs 1..N) y un administrador; las migraciones de la
+     * aplicación (índices, outbox, versión, trigger) se aplican al arrancar con Flyway (DatabaseMigrationConfig).
+     */
+    private void seed(EmbeddedPostgres postgres, FakeIdentityServer identity) throws Exception {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id serial PRIMARY KEY, firebase_uid varchar(128), name varchar(100),"
+                    + " last_name varchar(100), document_type varchar(20), document_number varchar(20), cell_phone varchar(20),"
+                    + " email varchar(150), password text, role text[], profile_image text,"
+                    + " status varchar(20) NOT NULL DEFAULT 'ACTIVE', version bigint NOT NULL DEFAULT 0)");
+            statement.execute("INSERT INTO users (firebase_uid, name, last_name, document_type, document_number, cell_phone,"
+                    + " email, password, role, profile_image)"
+                    + " SELECT 'load-' || g, 'Usuario', 'Carga ' || g, 'DNI', (70000000 + g)::text, '900000000',"
+                    + " 'load' || g || '" + USER_EMAIL_DOMAIN + "', 'x', ARRAY['USER'], ''"
+                    + " FROM generate_series(1, " + users + ") g");
+            statement.execute("INSERT INTO users (firebase_uid, name, last_name, email, password, role, profile_image)"
+                    + " VALUES ('" + ADMIN_UID + "', 'Admin', 'Carga', 'admin" + USER_EMAIL_DOMAIN + "', 'x', ARRAY['ADMIN'], '')");
+            statement.execute("ANALYZE users");
+        }
+        for (int i = 1; i <= users; i++) {
+            identity.register("load-" + i, email(i), "USER");
+        }
+        identity.register(ADMIN_UID, "admin" + USER_EMAIL_DOMAIN, "ADMIN");
+    }
+
+    private void registerInMemory(InMemoryIdentityProvider identity) {
+        for (int i = 1; i <= users; i++) {
+            identity.register("load-" + i, email(i), "USER");
+        }
+        identity.register(ADMIN_UID, "admin" + USER_EMAIL_DOMAIN, "ADMIN");
+    }
+
+    /**
+     * Con FIREBASE_AUTH_EMULATOR_HOST el SDK envía las llamadas de Auth a {@link FakeIdentityServer};
+     * la app queda inicializada antes de arrancar Spring, así que FirebaseConfig no necesita credenciales.
+     */
+    private static void initializeFirebase(FakeIdentityServer identity) {
+        FirebaseProcessEnvironment.setenv("FIREBASE_AUTH_EMULATOR_HOST", identity.emulatorHost());
+        FirebaseApp.initializeApp(FirebaseOptions.builder()
+                .setProjectId(FakeIdentityServer.PROJECT_ID)
+                .setCredentials(GoogleCredentials.create(new AccessToken("owner", null)))
+                .build());
+    }
+
+    private void mintTokens(JwksServer jwks) {
+        for (int i = 1; i <= users; i++) {
+            userTokens.add(jwks.mint("load-" + i, email(i), "USER"));
+        }
+        adminToken = jwks.mint(ADMIN_UID, "admin" + USER_EMAIL_DOMAIN, "ADMIN");
+    }
+
+    /**
+     * Como argumentos de línea de comandos, para que prevalezcan sobre los ${...} de application.yml.
+     */
+    private String[] arguments(EmbeddedPostgres postgres, JwksServer jwks, StubSupabaseServer supabase, Duration identityLatency) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        // Sin puerto de gestión: el harness no usa el actuator y así no ocupa el puerto fijo
+        properties.put("management.server.port", -1);
+        properties.put("spring.r2dbc.url", "r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres");
+        properties.put("spring.r2dbc.username", "postgres");
+        properties.put("spring.r2dbc.password", "");
+        properties.put("spring.security.oauth2.resourceserver.jwt.issuer-uri", JwksServer.ISSUER);
+        properties.put("spring.security.oauth2.resourceserver.jwt.jwk-set-uri", jwks.jwkSetUri());
+        properties.put("firebase.credentials", "");
+        if (inMemoryIdentity) {
+            properties.put("identity.provider", "in-memory");
+            properties.put("identity.in-memory.latency", identityLatency.toMillis() + "ms");
+        }
+        properties.put("supabase.project-url", supabase.projectUrl());
+        properties.put("supabase.api-key", "load-test");
+        properties.put("supabase.bucket", StubSupabaseServer.BUCKET);
+        properties.put("supabase.folder", "profiles");
+        // Los límites por usuario cortarían los escenarios de escritura a las pocas peticiones
+        properties.put("rate-limit.enabled", false);
+        properties.put("logging.level.pe.edu.vallegrande.user_service", "WARN");
+        properties.put("logging.level.io.r2dbc", "WARN");
+        properties.put("logging.level.org.springframework.web.cors", "WARN");
+        properties.put("logging.level.org.springframework.security.web.server", "WARN");
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    private static byte[] sampleImage() throws IOException {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0x2E7D32));
+        graphics.fillRect(0, 0, 640, 480);
+        graphics.setColor(Color.WHITE);
+        graphics.fillOval(220, 140, 200, 200);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    private static List<String> list(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .toList();
+    }
+
+    private int randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+
+    private String randomUserToken() {
+        return userTokens.get(randomUser() - 1);
+    }
+
+    private static String email(int user) {
+        return "load" + user + USER_EMAIL_DOMAIN;
+    }
+
+    private static String bearer(String token) {
+        return "Bearer " + token;
+    }
+}
@@ -0,0 +1,98 @@
+package pe.edu.vallegrande.user_service.loadtest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sustituto del API de Supabase Storage que usa {@code SupabaseStorageService}: PUT de objetos (se
+ * descarta el contenido y se recuerda la ruta), HEAD de la URL pública y DELETE. Con {@code latency}
+ * se simula el tiempo de ida y vuelta al bucket real.
+ */
+final class StubSupabaseServer implements AutoCloseable {
+
+    static final String BUCKET = "users";
+
+    private static final String OBJECT_PREFIX = "/storage/v1/object/";
+    private static final String PUBLIC_PREFIX = OBJECT_PREFIX + "public/";
+
+    private final Set<String> objects = ConcurrentHashMap.newKeySet();
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final Duration latency;
+    private final DisposableServer server;
+
+    StubSupabaseServer(Duration latency) {
+        this.latency = latency;
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .handle(this::handle)
+                .bindNow();
+    }
+
+    String projectUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    long uploads() {
+        return uploads.get();
+    }
+
+    long uploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        String path = request.fullPath();
+        HttpMethod method = request.method();
+        if (!path.startsWith(OBJECT_PREFIX)) {
+            return response.status(HttpResponseStatus.NOT_FOUND).send();
+        }
+
+        if (HttpMethod.HEAD.equals(method) && path.startsWith(PUBLIC_PREFIX)) {
+            boolean exists = objects.contains(path.substring(PUBLIC_PREFIX.length()));
+            return delayed(response.status(exists ? HttpResponseStatus.OK : HttpResponseStatus.NOT_FOUND).send());
+        }
+        String key = path.substring(OBJECT_PREFIX.length());
+        if (HttpMethod.PUT.equals(method) || HttpMethod.POST.equals(method)) {
+            return request.receive()
+                    .map(ByteBuf::readableBytes)
+                    .reduce(0L, Long::sum)
+                    .flatMap(bytes -> {
+                        objects.add(key);
+                        uploads.incrementAndGet();
+                        uploadedBytes.addAndGet(bytes);
+                        return delayed(response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"Key\":\"" + key + "\"}"))
+                                .then());
+                    });
+        }
+        if (HttpMethod.DELETE.equals(method)) {
+            objects.remove(key);
+            return delayed(response.header("Content-Type", "application/json")
+                    .sendString(Mono.just("{\"message\":\"Successfully deleted\"}"))
+                    .then());
+        }
+        return response.status(HttpResponseStatus.METHOD_NOT_ALLOWED).send();
+    }
+
+    private Mono<Void> delayed(Mono<Void> reply) {
+        return latency.isZero() ? reply : Mono.delay(latency).then(reply);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
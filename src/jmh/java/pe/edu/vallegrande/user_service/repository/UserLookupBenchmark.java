@@ -0,0 +1,132 @@
+package pe.edu.vallegrande.user_service.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.user_service.config.DatabaseMigrationConfig;
+import pe.edu.vallegrande.user_service.dto.UserField;
+import pe.edu.vallegrande.user_service.model.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecturas por UID (/api/users/me) y por email (emailExists, findByEmail) con 1k, 100k y 1M usuarios,
+ * tras las migraciones de la aplicación (V1 y V2 crean los índices). Con los índices la latencia debe
+ * mantenerse casi plana al crecer la tabla; sin ellos crece con el número de filas (seq scan).
+ * Cada tamaño usa su propio directorio de datos (target/lookup-benchmark-pg-N), reutilizado entre forks y
+ * ejecuciones ({@code mvn clean} lo borra).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserLookupBenchmark {
+
+    private static final int SAMPLE = 1_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private EmbeddedPostgres postgres;
+    private ConnectionPool pool;
+    private UsersRepositoryCustomImpl repository;
+    private List<String> columns;
+    private List<String> uids;
+    private List<String> emails;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        File dataDirectory = new File("target/lookup-benchmark-pg-" + rows);
+        boolean seeded = dataDirectory.exists();
+        postgres = EmbeddedPostgres.builder()
+                .setDataDirectory(dataDirectory)
+                .setCleanDataDirectory(false)
+                .start();
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host("localhost")
+                .port(postgres.getPort())
+                .username("postgres")
+                .database("postgres")
+                .build());
+        // Con pool, como el servicio: sin él cada consulta abriría una conexión y eso dominaría la medida
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory).initialSize(1).maxSize(2).build());
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(pool);
+        DatabaseClient client = template.getDatabaseClient();
+        if (!seeded) {
+            seed(client);
+        }
+        R2dbcProperties properties = new R2dbcProperties();
+        properties.setUsername("postgres");
+        new DatabaseMigrationConfig(properties, true, postgres.getJdbcUrl("postgres", "postgres")).migrate();
+        if (!seeded) {
+            client.sql("ANALYZE users").then().block();
+        }
+
+        repository = new UsersRepositoryCustomImpl(template, 500);
+        columns = UserField.ALL_COLUMNS;
+        // Claves existentes repartidas por toda la tabla, para no medir siempre las mismas páginas en caché
+        uids = client.sql("SELECT firebase_uid FROM users ORDER BY random() LIMIT " + SAMPLE)
+                .map(row -> row.get(0, String.class)).all().collectList().block();
+        emails = client.sql("SELECT email FROM users ORDER BY random() LIMIT " + SAMPLE)
+                .map(row -> row.get(0, String.class)).all().collectList().block();
+    }
+
+    private void seed(DatabaseClient client) {
+        client.sql("CREATE TABLE users (id serial PRIMARY KEY, firebase_uid varchar(128), name varchar(100),"
+                + " last_name varchar(100), document_type varchar(20), document_number varchar(20), cell_phone varchar(20),"
+                + " email varchar(150), password text, role text[], profile_image text)").then().block();
+        client.sql("INSERT INTO users (firebase_uid, name, last_name, document_type, document_number, cell_phone, email,"
+                + " password, role, profile_image) "
+                + "SELECT md5(g::text), 'Usuario', 'Carga ' || g, 'DNI', (70000000 + g)::text, '9' || lpad(g::text, 8, '0'),"
+                + " 'user' || g || '@vallegrande.edu.pe', 'x', ARRAY['USER'], ''"
+                + " FROM generate_series(1, " + rows + ") g").then().block();
+    }
+
+    @Benchmark
+    public User byFirebaseUid() {
+        return repository.findByFirebaseUid(uids.get(ThreadLocalRandom.current().nextInt(uids.size())), columns).block();
+    }
+
+    @Benchmark
+    public User byEmail() {
+        return repository.findByEmail(emails.get(ThreadLocalRandom.current().nextInt(emails.size())), columns).block();
+    }
+
+    /**
+     * Email libre (registro nuevo): sin índice es el peor caso, recorre la tabla completa.
+     */
+    @Benchmark
+    public User byMissingEmail() {
+        return repository.findByEmail("nuevo" + ThreadLocalRandom.current().nextInt() + "@vallegrande.edu.pe", columns).block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.dispose();
+        postgres.close();
+    }
+}
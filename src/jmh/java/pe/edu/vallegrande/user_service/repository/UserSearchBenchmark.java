@@ -0,0 +1,125 @@
+package pe.edu.vallegrande.user_service.repository;
+
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.user_service.config.DatabaseMigrationConfig;
+import pe.edu.vallegrande.user_service.dto.UserField;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de usuarios (índice GiST de trigramas, V3__users_search_trgm_indexes) sobre un PostgreSQL
+ * embebido con un millón de usuarios sintéticos. Mode.SampleTime reporta p50/p95/p99 por consulta;
+ * el objetivo es p95 < 50 ms. La siembra y la creación del índice tardan unos minutos: el directorio de
+ * datos (target/search-benchmark-pg) se reutiliza entre forks y ejecuciones ({@code mvn clean} lo borra).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSearchBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int PAGE_SIZE = 20;
+    private static final File DATA_DIRECTORY = new File("target/search-benchmark-pg");
+
+    // Nombres y apellidos frecuentes: muchas coincidencias por consulta, el peor caso para ordenar
+    private static final String SEED = "INSERT INTO users (firebase_uid, name, last_name, document_type, document_number,"
+            + " cell_phone, email, password, role, profile_image) "
+            + "SELECT md5(g::text),"
+            + " (ARRAY['María','José','Luis','Ana','Carlos','Rosa','Jorge','Lucía','Pedro','Elena'])[1 + g % 10] || ' ' ||"
+            + " (ARRAY['Isabel','Antonio','Fernanda','Miguel','Sofía','Andrés','Valeria','Diego','Camila','Raúl'])[1 + (g / 10) % 10],"
+            + " (ARRAY['Quispe','Huamán','Flores','Mamani','García','Rodríguez','Torres','Chávez','Ramírez','Sánchez','Vargas','Castillo'])[1 + (g / 7) % 12]"
+            + " || ' ' || (ARRAY['López','Díaz','Cruz','Rojas','Mendoza','Gutiérrez','Paredes'])[1 + (g / 3) % 7],"
+            + " 'DNI', (70000000 + g)::text, '9' || lpad(g::text, 8, '0'),"
+            + " 'user' || g || '.' || substr(md5(g::text), 1, 5) || '@vallegrande.edu.pe', 'x', ARRAY['USER'], ''"
+            + " FROM generate_series(1, " + ROWS + ") g";
+
+    @Param({"mar", "quispe", "fernanda", "rodrigues", "quispe lópez", "7012345", "user9999", "vallegrande"})
+    public String query;
+
+    private EmbeddedPostgres postgres;
+    private UsersRepositoryCustomImpl repository;
+    private List<String> columns;
+    private SearchHit firstPageLast;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        boolean seeded = DATA_DIRECTORY.exists();
+        postgres = EmbeddedPostgres.builder()
+                .setDataDirectory(DATA_DIRECTORY)
+                .setCleanDataDirectory(false)
+                .start();
+        PostgresqlConnectionFactory connectionFactory = new PostgresqlConnectionFactory(PostgresqlConnectionConfiguration.builder()
+                .host("localhost")
+                .port(postgres.getPort())
+                .username("postgres")
+                .database("postgres")
+                .build());
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(connectionFactory);
+        if (!seeded) {
+            seed(template.getDatabaseClient());
+        }
+        // Las migraciones de la aplicación (V3 crea el índice de trigramas), como al arrancar el servicio
+        R2dbcProperties properties = new R2dbcProperties();
+        properties.setUsername("postgres");
+        new DatabaseMigrationConfig(properties, true, postgres.getJdbcUrl("postgres", "postgres")).migrate();
+        if (!seeded) {
+            template.getDatabaseClient().sql("ANALYZE users").then().block();
+        }
+
+        repository = new UsersRepositoryCustomImpl(template, 500);
+        columns = UserField.ALL_COLUMNS;
+        List<SearchHit> firstPage = search(null, null);
+        firstPageLast = firstPage.isEmpty() ? null : firstPage.get(firstPage.size() - 1);
+    }
+
+    private static void seed(DatabaseClient client) {
+        client.sql("CREATE TABLE users (id serial PRIMARY KEY, firebase_uid varchar(128), name varchar(100),"
+                + " last_name varchar(100), document_type varchar(20), document_number varchar(20), cell_phone varchar(20),"
+                + " email varchar(150), password text, role text[], profile_image text,"
+                + " status varchar(20) NOT NULL DEFAULT 'ACTIVE', version bigint NOT NULL DEFAULT 0)").then().block();
+        client.sql(SEED).then().block();
+    }
+
+    @Benchmark
+    public List<SearchHit> firstPage() {
+        return search(null, null);
+    }
+
+    @Benchmark
+    public List<SearchHit> secondPage() {
+        return firstPageLast == null ? List.of() : search(firstPageLast.distance(), firstPageLast.user().getId());
+    }
+
+    private List<SearchHit> search(Float afterDistance, Integer afterId) {
+        return repository.search(query, afterDistance, afterId, PAGE_SIZE + 1, columns).collectList().block();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        postgres.close();
+    }
+}
@@ -0,0 +1,51 @@
+package pe.edu.vallegrande.user_service.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de un hash con los parámetros por defecto de {@link PasswordHashingService}
+ * (BCrypt strength 10, Argon2id 19 MiB / 2 iteraciones / paralelismo 1).
+ * Se mide el encoder directamente, sin el salto al scheduler del servicio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordEncodingBenchmark {
+
+    @Param({"bcrypt", "argon2"})
+    public String algorithm;
+
+    private PasswordEncoder encoder;
+
+    @Setup
+    public void setup() {
+        encoder = switch (algorithm) {
+            case "bcrypt" -> new BCryptPasswordEncoder(10);
+            case "argon2" -> new Argon2PasswordEncoder(16, 32, 1, 19456, 2);
+            default -> throw new IllegalArgumentException(algorithm);
+        };
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode("S3gura!Contraseña2024");
+    }
+}
@@ -0,0 +1,53 @@
+package pe.edu.vallegrande.user_service.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.model.UserStatus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión entidad → DTO, presente en todas las respuestas de usuarios.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMappingBenchmark {
+
+    private UserService userService;
+    private User user;
+
+    @Setup
+    public void setup() {
+        // toDto no usa las dependencias del servicio
+        userService = new UserService(null, null, null, null, null, null, null, null, null, 3);
+        user = new User(42, "kF3nQ9xYzU1bR7cT0aLmP2sVw8e", "María", "Quispe Huamán", "DNI", "71234567",
+                "987654321", "maria.quispe@vallegrande.edu.pe", "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z8a9vbF5yQ1Zp0Q0x1nY3mW6",
+                List.of("USER"), "https://example.supabase.co/storage/v1/object/public/images/users/"
+                + "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08/original.png", UserStatus.ACTIVE, 3L);
+    }
+
+    @Benchmark
+    public UserDto serviceToDto() {
+        return userService.toDto(user);
+    }
+
+    @Benchmark
+    public UserDto dtoFromEntity() {
+        return UserDto.fromEntity(user);
+    }
+}
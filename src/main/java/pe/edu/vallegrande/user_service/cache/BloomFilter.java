@@ -0,0 +1,100 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom concurrente y sin bloqueos sobre un {@link AtomicLongArray}.
+ * {@link #mightContain(String)} nunca da falsos negativos: {@code false} significa "seguro que no está".
+ */
+class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final AtomicLong bitsSet = new AtomicLong();
+    private final AtomicLong insertions = new AtomicLong();
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        // m = -n·ln(p) / ln(2)^2 ; k = m/n · ln(2)
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            changed |= setBit(index(hash1 + i * hash2));
+        }
+        if (changed) insertions.incrementAndGet();
+    }
+
+    boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = index(hash1 + i * hash2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Probabilidad de falso positivo estimada a partir de la fracción de bits activos: (bits/m)^k.
+     */
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bitCount, hashFunctions);
+    }
+
+    long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    long approximateElementCount() {
+        return insertions.get();
+    }
+
+    private boolean setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) return false;
+        } while (!words.compareAndSet(word, current, current | mask));
+        bitsSet.incrementAndGet();
+        return true;
+    }
+
+    private long index(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre UTF-8 seguido del finalizador de MurmurHash3 para repartir los bits.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,210 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user_service.repository.UsersRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Filtro de Bloom de emails normalizados delante de las comprobaciones de existencia.
+ * Si el filtro responde "no está", el email seguro que no existe y no se consulta la base de datos;
+ * solo los posibles positivos llegan a la búsqueda indexada.
+ * <p>
+ * Se construye leyendo la tabla al arrancar y se mantiene al día en altas y cambios de email, tanto
+ * las de este nodo como las de otras réplicas ({@link UserCacheCoherence}). Sin ese canal
+ * ({@code users.cache.coherence.enabled=false}) el filtro no sabría de las altas de otras réplicas y daría
+ * falsos "no está", así que queda desactivado y toda comprobación consulta la base de datos.
+ * Por lo mismo, el filtro solo responde mientras el canal LISTEN está activo: al caerse deja de usarse
+ * ({@link #suspend()}) y cada conexión o reconexión lo reconstruye desde la tabla ({@link #resync()}),
+ * ya que pudieron perderse altas mientras no se escuchaba.
+ * Un filtro de Bloom no admite borrados: los emails eliminados o sustituidos siguen dando positivo
+ * (solo cuesta una consulta) hasta la siguiente reconstrucción periódica.
+ */
+@Slf4j
+@Component
+public class EmailExistenceFilter implements DisposableBean {
+
+    private final UsersRepository usersRepository;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+    private final boolean enabled;
+
+    // Mientras no termina la primera carga todo es "posible": se consulta la base de datos como antes
+    private final AtomicReference<BloomFilter> filter = new AtomicReference<>();
+    // Filtro en construcción: recibe también las altas concurrentes para no perderlas al sustituirlo
+    private final AtomicReference<BloomFilter> building = new AtomicReference<>();
+    private volatile Disposable rebuild;
+    // Reconstrucciones pedidas al (re)conectar el canal LISTEN, además de las periódicas
+    private final Sinks.Many<Long> rebuildRequests = Sinks.many().unicast().onBackpressureBuffer();
+    // Protege listening/epoch/filter: una construcción iniciada antes de perder el canal no se publica
+    private final Object lock = new Object();
+    private boolean listening;
+    private long epoch;
+
+    private final Counter absent;
+    private final Counter possible;
+    private final Counter falsePositives;
+
+    public EmailExistenceFilter(UsersRepository usersRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${users.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${users.email-filter.rebuild-interval:6h}") Duration rebuildInterval,
+                                @Value("${users.cache.coherence.enabled:true}") boolean coherenceEnabled) {
+        this.usersRepository = usersRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+        this.enabled = coherenceEnabled;
+
+        this.absent = checks(meterRegistry, "absent");
+        this.possible = checks(meterRegistry, "possible");
+        this.falsePositives = Counter.builder("users.email_filter.false_positives")
+                .description("Positivos del filtro que la base de datos descartó")
+                .register(meterRegistry);
+        Gauge.builder("users.email_filter.expected_fpp", filter, ref -> ref.get() != null ? ref.get().expectedFalsePositiveRate() : Double.NaN)
+                .description("Probabilidad de falso positivo estimada según los bits activos")
+                .register(meterRegistry);
+        Gauge.builder("users.email_filter.memory", filter, ref -> ref.get() != null ? ref.get().memoryBytes() : 0)
+                .description("Memoria del array de bits")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("users.email_filter.elements", filter, ref -> ref.get() != null ? ref.get().approximateElementCount() : 0)
+                .description("Emails añadidos al filtro (aproximado)")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Filtro de emails desactivado: sin coherencia entre réplicas se consulta siempre la base de datos");
+            return;
+        }
+        // La primera construcción la pide UserCacheCoherence al empezar a escuchar
+        rebuild = Flux.merge(rebuildRequests.asFlux(), Flux.interval(rebuildInterval, rebuildInterval))
+                .onBackpressureLatest()
+                .concatMap(tick -> build()
+                        .onErrorResume(e -> {
+                            log.warn("No se pudo construir el filtro de emails: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * El canal de coherencia se perdió: hasta la próxima reconstrucción todo email es "posible".
+     */
+    public void suspend() {
+        synchronized (lock) {
+            listening = false;
+            epoch++;
+            filter.set(null);
+        }
+    }
+
+    /**
+     * El canal de coherencia está escuchando: descarta el filtro actual y lo reconstruye desde la tabla.
+     * Las altas notificadas durante la lectura se añaden también al filtro en construcción.
+     */
+    public void resync() {
+        if (!enabled) return;
+        synchronized (lock) {
+            listening = true;
+            epoch++;
+            filter.set(null);
+        }
+        rebuildRequests.emitNext(System.nanoTime(), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    /**
+     * {@code false} si el email seguro que no está registrado; {@code true} si podría estarlo.
+     */
+    public boolean mightContain(String email) {
+        BloomFilter current = filter.get();
+        boolean result = current == null || email == null || current.mightContain(normalize(email));
+        (result ? possible : absent).increment();
+        return result;
+    }
+
+    public void add(String email) {
+        if (email == null) return;
+        String normalized = normalize(email);
+        BloomFilter current = filter.get();
+        if (current != null) current.put(normalized);
+        BloomFilter next = building.get();
+        if (next != null) next.put(normalized);
+    }
+
+    /**
+     * Registra que un positivo del filtro no existía en la base de datos (tasa de falsos positivos real).
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Lee todos los emails y sustituye el filtro. El tamaño se ajusta si la tabla ya supera lo previsto.
+     */
+    private Mono<Void> build() {
+        long start = System.nanoTime();
+        long startedEpoch;
+        synchronized (lock) {
+            if (!listening) return Mono.empty();
+            startedEpoch = epoch;
+        }
+        return usersRepository.count()
+                .flatMap(count -> {
+                    BloomFilter next = new BloomFilter(Math.max(expectedInsertions, count * 2), falsePositiveRate);
+                    building.set(next);
+                    return usersRepository.streamAllEmails()
+                            .doOnNext(email -> next.put(normalize(email)))
+                            .then(Mono.fromRunnable(() -> {
+                                synchronized (lock) {
+                                    if (!listening || epoch != startedEpoch) {
+                                        log.debug("Filtro de emails descartado: el canal de coherencia cambió durante la lectura");
+                                        return;
+                                    }
+                                    filter.set(next);
+                                }
+                                log.info("Filtro de emails construido: {} emails, {} KB, fpp estimada {} ({} ms)",
+                                        next.approximateElementCount(), next.memoryBytes() / 1024,
+                                        String.format(Locale.ROOT, "%.5f", next.expectedFalsePositiveRate()),
+                                        (System.nanoTime() - start) / 1_000_000);
+                            }))
+                            .doFinally(signal -> building.compareAndSet(next, null));
+                })
+                .then();
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.email_filter.checks")
+                .description("Consultas al filtro de emails")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void destroy() {
+        Disposable current = rebuild;
+        if (current != null) current.dispose();
+    }
+}
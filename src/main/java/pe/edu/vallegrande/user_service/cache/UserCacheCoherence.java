@@ -0,0 +1,194 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.postgresql.api.PostgresqlResult;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user_service.dto.UserChangeType;
+import pe.edu.vallegrande.user_service.service.UserChangeFeed;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Coherencia de las cachés en memoria entre réplicas con LISTEN/NOTIFY de PostgreSQL, sin Redis.
+ * El trigger de {@code users} (V6) notifica cada alta, cambio o borrado en el canal {@value #CHANNEL} con el id,
+ * el UID y los emails afectados; cada réplica escucha en una conexión dedicada (fuera del pool), invalida
+ * esas claves de {@link UserProfileCache}, añade el email al {@link EmailExistenceFilter} y publica el cambio en
+ * el {@link UserChangeFeed} local, para que sus suscriptores vean también las escrituras de las demás réplicas.
+ * <p>
+ * La notificación sale al confirmar la transacción y cubre cualquier escritura (lotes, importación, outbox).
+ * Las de este proceso se ignoran: ya actualizó su caché al escribir. Mientras la conexión está caída el filtro
+ * de emails deja de usarse, y en cada conexión o reconexión se vacía la caché de perfiles y se reconstruye el
+ * filtro, porque pudo perderse alguna invalidación o alta; en cada reconexión el feed emite además un RESYNC.
+ */
+@Slf4j
+@Component
+public class UserCacheCoherence implements DisposableBean {
+
+    public static final String CHANNEL = "users_cache";
+
+    // application_name de las conexiones de este proceso (R2dbcConfig): llega como origen en cada notificación
+    public static final String NODE_ID = "user-service-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final UserProfileCache userProfileCache;
+    private final EmailExistenceFilter emailExistenceFilter;
+    private final UserChangeFeed userChangeFeed;
+    private final PostgresqlConnectionFactory connectionFactory;
+    private final boolean enabled;
+    private final Duration reconnectDelay;
+    private final Duration maxReconnectDelay;
+    private final Counter applied;
+    private final Counter own;
+    private final Counter reconnects;
+    private volatile Disposable subscription;
+    private volatile boolean connected;
+
+    public UserCacheCoherence(UserProfileCache userProfileCache,
+                              EmailExistenceFilter emailExistenceFilter,
+                              UserChangeFeed userChangeFeed,
+                              R2dbcProperties r2dbcProperties,
+                              MeterRegistry meterRegistry,
+                              @Value("${users.cache.coherence.enabled:true}") boolean enabled,
+                              @Value("${users.cache.coherence.reconnect-delay:1s}") Duration reconnectDelay,
+                              @Value("${users.cache.coherence.max-reconnect-delay:30s}") Duration maxReconnectDelay) {
+        this.userProfileCache = userProfileCache;
+        this.emailExistenceFilter = emailExistenceFilter;
+        this.userChangeFeed = userChangeFeed;
+        this.connectionFactory = enabled ? listenerConnectionFactory(r2dbcProperties) : null;
+        this.enabled = enabled;
+        this.reconnectDelay = reconnectDelay;
+        this.maxReconnectDelay = maxReconnectDelay;
+        this.applied = notifications(meterRegistry, "applied");
+        this.own = notifications(meterRegistry, "own");
+        this.reconnects = Counter.builder("users.cache.coherence.reconnects")
+                .description("Reconexiones del canal LISTEN (cada una vacía la caché de perfiles)")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        subscription = Flux.defer(this::listen)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, reconnectDelay)
+                        .maxBackoff(maxReconnectDelay)
+                        // El backoff vuelve a empezar tras una conexión que llegó a recibir notificaciones
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> {
+                            reconnects.increment();
+                            emailExistenceFilter.suspend();
+                            log.warn("Canal {} interrumpido, reconectando: {}", CHANNEL, signal.failure().getMessage());
+                        }))
+                .subscribe(notification -> apply(notification.getParameter()));
+    }
+
+    private Flux<Notification> listen() {
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> Flux.merge(
+                                // Suscrito antes del LISTEN para no perder las primeras notificaciones
+                                connection.getNotifications(),
+                                connection.createStatement("LISTEN " + CHANNEL).execute()
+                                        .flatMap(PostgresqlResult::getRowsUpdated)
+                                        .then(Mono.fromRunnable(() -> {
+                                            // Lo cacheado antes de escuchar pudo invalidarse sin que nos enteráramos
+                                            userProfileCache.invalidateAll();
+                                            emailExistenceFilter.resync();
+                                            // En la primera conexión el feed aún no tiene eventos que se hayan perdido
+                                            if (connected) userChangeFeed.resync();
+                                            connected = true;
+                                            log.info("Escuchando invalidaciones de caché en {} como {}", CHANNEL, NODE_ID);
+                                        }))
+                                        .then(Mono.<Notification>empty()))
+                        .concatWith(Mono.error(() -> new IllegalStateException("Conexión LISTEN cerrada"))),
+                PostgresqlConnection::close);
+    }
+
+    /**
+     * Aplica una notificación: {@code origen, operación (I/U/D), id, uid, email, email anterior, versión} separados
+     * por tabuladores (la versión, desde V7).
+     */
+    void apply(String payload) {
+        String[] fields = payload != null ? payload.split("\t", -1) : new String[0];
+        if (fields.length < 6) {
+            log.warn("Notificación de {} no reconocida: {}", CHANNEL, payload);
+            return;
+        }
+        if (NODE_ID.equals(fields[0])) {
+            own.increment();
+            return;
+        }
+        try {
+            Integer id = Integer.valueOf(fields[2]);
+            String uid = blankToNull(fields[3]);
+            String email = blankToNull(fields[4]);
+            String previousEmail = blankToNull(fields[5]);
+            Long version = fields.length > 6 && !fields[6].isEmpty() ? Long.valueOf(fields[6]) : null;
+            userProfileCache.evict(id, uid, email);
+            userProfileCache.evictEmail(previousEmail);
+            if (!"D".equals(fields[1])) emailExistenceFilter.add(email);
+            userChangeFeed.remote(changeType(fields[1], previousEmail), id, uid, version, previousEmail);
+            applied.increment();
+        } catch (NumberFormatException e) {
+            log.warn("Notificación de {} con id inválido: {}", CHANNEL, payload);
+        }
+    }
+
+    private static UserChangeType changeType(String operation, String previousEmail) {
+        return switch (operation) {
+            case "I" -> UserChangeType.CREATED;
+            case "D" -> UserChangeType.DELETED;
+            default -> previousEmail != null ? UserChangeType.EMAIL_CHANGED : UserChangeType.UPDATED;
+        };
+    }
+
+    /**
+     * Conexión propia para LISTEN con la misma base de datos y credenciales que el pool.
+     */
+    private static PostgresqlConnectionFactory listenerConnectionFactory(R2dbcProperties properties) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(properties.getUrl());
+        ConnectionFactoryOptions.Builder builder = options.mutate();
+        // r2dbc:pool:postgresql://... → r2dbc:postgresql://...
+        if ("pool".equals(options.getValue(ConnectionFactoryOptions.DRIVER))) {
+            builder.option(ConnectionFactoryOptions.DRIVER, (String) options.getRequiredValue(ConnectionFactoryOptions.PROTOCOL))
+                    .option(ConnectionFactoryOptions.PROTOCOL, "");
+        }
+        if (properties.getUsername() != null) builder.option(ConnectionFactoryOptions.USER, properties.getUsername());
+        if (properties.getPassword() != null) builder.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        builder.option(PostgresqlConnectionFactoryProvider.APPLICATION_NAME, NODE_ID)
+                // Detecta conexiones muertas aunque no haya tráfico en el canal
+                .option(PostgresqlConnectionFactoryProvider.TCP_KEEPALIVE, true);
+        return new PostgresqlConnectionFactoryProvider().create(builder.build());
+    }
+
+    private static Counter notifications(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("users.cache.coherence.notifications")
+                .description("Notificaciones de invalidación recibidas")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    @Override
+    public void destroy() {
+        Disposable current = subscription;
+        if (current != null) current.dispose();
+    }
+}
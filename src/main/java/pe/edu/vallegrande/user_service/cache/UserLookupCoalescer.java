@@ -0,0 +1,93 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight de las lecturas de un usuario: las peticiones concurrentes por la misma clave (ID, UID o
+ * email) y las mismas columnas comparten la consulta en curso en lugar de abrir otra conexión del pool.
+ * Complementa a {@link UserProfileCache}, que solo agrupa cargas mientras la entrada está en caché y no
+ * cubre las lecturas con proyección.
+ * Una lectura no se une a una consulta iniciada antes de la última escritura registrada en la caché
+ * ({@link UserProfileCache#generation()}), para no devolver datos anteriores a esa escritura.
+ * {@code users.lookups.coalesced{lookup}} cuenta las peticiones resueltas con la consulta de otra.
+ */
+@Component
+public class UserLookupCoalescer {
+
+    private final UserProfileCache userProfileCache;
+    private final InFlight<Integer> byId;
+    private final InFlight<String> byUid;
+    private final InFlight<String> byEmail;
+
+    public UserLookupCoalescer(UserProfileCache userProfileCache, MeterRegistry meterRegistry) {
+        this.userProfileCache = userProfileCache;
+        this.byId = new InFlight<>("id", meterRegistry);
+        this.byUid = new InFlight<>("uid", meterRegistry);
+        this.byEmail = new InFlight<>("email", meterRegistry);
+    }
+
+    public Mono<UserDto> findById(Integer id, List<String> columns, Supplier<Mono<UserDto>> loader) {
+        return byId.load(new Key<>(id, columns), loader);
+    }
+
+    public Mono<UserDto> findByUid(String firebaseUid, List<String> columns, Supplier<Mono<UserDto>> loader) {
+        return byUid.load(new Key<>(firebaseUid, columns), loader);
+    }
+
+    public Mono<UserDto> findByEmail(String email, List<String> columns, Supplier<Mono<UserDto>> loader) {
+        return byEmail.load(new Key<>(email, columns), loader);
+    }
+
+    private record Key<K>(K value, List<String> columns) {
+    }
+
+    /**
+     * Consultas en curso para un tipo de clave; cada entrada se retira al terminar su consulta.
+     */
+    private final class InFlight<K> {
+
+        private final Map<Key<K>, Flight> flights = new ConcurrentHashMap<>();
+        private final Counter coalesced;
+
+        private InFlight(String lookup, MeterRegistry meterRegistry) {
+            this.coalesced = Counter.builder("users.lookups.coalesced")
+                    .description("Lecturas de usuario resueltas con la consulta en curso de otra petición")
+                    .tag("lookup", lookup)
+                    .register(meterRegistry);
+        }
+
+        private Mono<UserDto> load(Key<K> key, Supplier<Mono<UserDto>> loader) {
+            return Mono.defer(() -> {
+                long generation = userProfileCache.generation();
+                Flight candidate = new Flight(generation);
+                // Ensamblar la consulta no la ejecuta; share() la lanza una vez y la mantiene aunque cancele el primer suscriptor.
+                // Se retira con la primera señal, antes de entregar el resultado, para no servirlo a peticiones posteriores
+                candidate.result = loader.get()
+                        .doOnEach(signal -> flights.remove(key, candidate))
+                        .share();
+                Flight flight = flights.compute(key, (k, current) ->
+                        current != null && current.generation == generation ? current : candidate);
+                if (flight != candidate) coalesced.increment();
+                return flight.result;
+            });
+        }
+    }
+
+    private static final class Flight {
+        private final long generation;
+        private Mono<UserDto> result;
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché asíncrona y acotada de perfiles ({@link UserDto}) indexada por UID de Firebase, email e ID.
+ * Cada perfil se guarda bajo sus tres claves para que una lectura por cualquiera de ellas
+ * encuentre la entrada; las escrituras de {@code UserService} la refrescan o la invalidan.
+ */
+@Component
+public class UserProfileCache {
+
+    private static final String CACHE_NAME = "users.profile";
+
+    private final AsyncCache<String, UserDto> cache;
+    // Se incrementa con cada escritura o invalidación (también las de otras réplicas)
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserProfileCache(@Value("${users.cache.max-size:10000}") long maxSize,
+                            @Value("${users.cache.ttl:5m}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        // Expone cache.gets{result=hit|miss}, cache.evictions, cache.size, ...
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Mono<UserDto> getByUid(String firebaseUid, Supplier<Mono<UserDto>> loader) {
+        return get(uidKey(firebaseUid), loader);
+    }
+
+    public Mono<UserDto> getByEmail(String email, Supplier<Mono<UserDto>> loader) {
+        return get(emailKey(email), loader);
+    }
+
+    public Mono<UserDto> getById(Integer id, Supplier<Mono<UserDto>> loader) {
+        return get(idKey(id), loader);
+    }
+
+    /**
+     * Perfil en caché sin cargarlo si falta (las lecturas con proyección no deben llenar la caché).
+     */
+    public Mono<UserDto> peekByUid(String firebaseUid) {
+        return peek(uidKey(firebaseUid));
+    }
+
+    public Mono<UserDto> peekByEmail(String email) {
+        return peek(emailKey(email));
+    }
+
+    public Mono<UserDto> peekById(Integer id) {
+        return peek(idKey(id));
+    }
+
+    /**
+     * Número de escrituras e invalidaciones registradas; {@link UserLookupCoalescer} no comparte una
+     * consulta iniciada antes de la última.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Write-through: guarda el perfil actualizado bajo todas sus claves.
+     */
+    public void put(UserDto user) {
+        if (user == null) return;
+        generation.incrementAndGet();
+        CompletableFuture<UserDto> value = CompletableFuture.completedFuture(user);
+        for (String key : keysOf(user)) {
+            cache.put(key, value);
+        }
+    }
+
+    /**
+     * Invalida todas las claves del perfil (ID, UID y email).
+     */
+    public void evict(UserDto user) {
+        if (user == null) return;
+        generation.incrementAndGet();
+        cache.synchronous().invalidateAll(keysOf(user));
+    }
+
+    /**
+     * Invalida las claves indicadas (las nulas se ignoran); para invalidaciones de otras réplicas sin el perfil completo.
+     */
+    public void evict(Integer id, String firebaseUid, String email) {
+        generation.incrementAndGet();
+        List<String> keys = new ArrayList<>(3);
+        if (id != null) keys.add(idKey(id));
+        if (firebaseUid != null) keys.add(uidKey(firebaseUid));
+        if (email != null) keys.add(emailKey(email));
+        cache.synchronous().invalidateAll(keys);
+    }
+
+    /**
+     * Vacía la caché (p. ej. tras perder notificaciones de invalidación).
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Invalida solo la entrada del email indicado (p. ej. el correo anterior tras un cambio).
+     */
+    public void evictEmail(String email) {
+        if (email == null) return;
+        generation.incrementAndGet();
+        cache.synchronous().invalidate(emailKey(email));
+    }
+
+    private Mono<UserDto> get(String key, Supplier<Mono<UserDto>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<UserDto> loading = new CompletableFuture<>();
+            CompletableFuture<UserDto> cached = cache.get(key, (k, executor) -> loading);
+            if (cached == loading) {
+                // Se carga fuera del cómputo de Caffeine, con la entrada ya registrada, para poder comprobar
+                // al terminar que sigue siendo la de esta carga
+                Mono.defer(loader).subscribe(user -> {
+                    putAliases(key, loading, user);
+                    loading.complete(user);
+                }, loading::completeExceptionally, () -> loading.complete(null));
+            }
+            return Mono.fromFuture(cached, true);
+        });
+    }
+
+    private Mono<UserDto> peek(String key) {
+        return Mono.defer(() -> {
+            CompletableFuture<UserDto> cached = cache.getIfPresent(key);
+            return cached != null ? Mono.fromFuture(cached, true) : Mono.empty();
+        });
+    }
+
+    /**
+     * Tras un fallo de caché, registra el perfil cargado también bajo sus otras claves.
+     */
+    private void putAliases(String loadedKey, CompletableFuture<UserDto> loading, UserDto user) {
+        // Invalidada o reemplazada por un put mientras se cargaba: el perfil leído puede ser anterior a esa
+        // escritura y no debe pisar la versión nueva en las otras claves
+        if (cache.getIfPresent(loadedKey) != loading) return;
+        CompletableFuture<UserDto> value = CompletableFuture.completedFuture(user);
+        for (String key : keysOf(user)) {
+            if (!key.equals(loadedKey)) cache.put(key, value);
+        }
+    }
+
+    private static List<String> keysOf(UserDto user) {
+        List<String> keys = new ArrayList<>(3);
+        if (user.getId() != null) keys.add(idKey(user.getId()));
+        if (user.getFirebaseUid() != null) keys.add(uidKey(user.getFirebaseUid()));
+        if (user.getEmail() != null) keys.add(emailKey(user.getEmail()));
+        return keys;
+    }
+
+    private static String uidKey(String firebaseUid) {
+        return "uid:" + firebaseUid;
+    }
+
+    private static String emailKey(String email) {
+        return "email:" + email;
+    }
+
+    private static String idKey(Integer id) {
+        return "id:" + id;
+    }
+}
@@ -0,0 +1,134 @@
+package pe.edu.vallegrande.user_service.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2CodecSupport;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Encoders Jackson para formatos binarios. Los de Spring no sirven para un {@code Flux} con el tipo no streaming:
+ * el de CBOR no lo admite y el de Smile lo escribe como array JSON ({@code [ , ]} en texto). Aquí el Flux se
+ * escribe como un único array nativo del formato, de longitud indefinida, con un solo generador: cada elemento sale
+ * en su propio buffer en cuanto llega, sin reunir la lista en memoria. Los tipos streaming
+ * ({@code application/stream+x-jackson-smile}) siguen escribiendo un documento por elemento.
+ */
+final class BinaryJacksonEncoders {
+
+    // Los constructores de Spring que reciben el ObjectMapper usan los tipos JSON si no se indican otros
+    static final MimeType[] SMILE_MIME_TYPES = {
+            new MimeType("application", "x-jackson-smile"), new MimeType("application", "*+x-jackson-smile")};
+    static final MimeType[] CBOR_MIME_TYPES = {MediaType.APPLICATION_CBOR};
+
+    private BinaryJacksonEncoders() {
+    }
+
+    static class Smile extends Jackson2SmileEncoder {
+
+        Smile(ObjectMapper mapper) {
+            super(mapper, SMILE_MIME_TYPES);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono || getStreamingMediaTypeSeparator(mimeType) != null) {
+                return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+            }
+            return encodeAsArray(selectObjectMapper(elementType, mimeType), inputStream, bufferFactory, elementType, hints);
+        }
+    }
+
+    static class Cbor extends Jackson2CborEncoder {
+
+        Cbor(ObjectMapper mapper) {
+            super(mapper, CBOR_MIME_TYPES);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> mono) {
+                return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return encodeAsArray(selectObjectMapper(elementType, mimeType), inputStream, bufferFactory, elementType, hints);
+        }
+    }
+
+    private static Flux<DataBuffer> encodeAsArray(ObjectMapper mapper, Publisher<?> inputStream,
+                                                  DataBufferFactory bufferFactory, ResolvableType elementType,
+                                                  Map<String, Object> hints) {
+        if (mapper == null) {
+            return Flux.error(new IllegalStateException("Sin ObjectMapper para " + elementType));
+        }
+        ObjectWriter writer = mapper.writerFor(mapper.constructType(elementType.getType()));
+        Class<?> view = hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null;
+        ObjectWriter viewWriter = view != null ? writer.withView(view) : writer;
+        return Flux.using(() -> new ArrayWriter(viewWriter),
+                array -> Flux.from(inputStream)
+                        .map(value -> bufferFactory.wrap(array.write(value)))
+                        .concatWith(Mono.fromCallable(() -> bufferFactory.wrap(array.finish()))),
+                ArrayWriter::close);
+    }
+
+    /**
+     * Un array del formato (CBOR: {@code 0x9F ... 0xFF}; Smile: cabecera y {@code [ ... ]}) escrito elemento a
+     * elemento; cada llamada devuelve los bytes producidos desde la anterior.
+     */
+    private static final class ArrayWriter {
+
+        private final ObjectWriter writer;
+        private final ByteArrayBuilder bytes = new ByteArrayBuilder();
+        private final JsonGenerator generator;
+
+        private ArrayWriter(ObjectWriter writer) throws IOException {
+            this.writer = writer;
+            this.generator = writer.createGenerator(bytes);
+            generator.writeStartArray();
+        }
+
+        private byte[] write(Object value) {
+            try {
+                writer.writeValue(generator, value);
+                return drain();
+            } catch (IOException e) {
+                throw new EncodingException("No se pudo codificar " + value.getClass().getSimpleName(), e);
+            }
+        }
+
+        private byte[] finish() throws IOException {
+            generator.writeEndArray();
+            return drain();
+        }
+
+        private byte[] drain() throws IOException {
+            generator.flush();
+            byte[] written = bytes.toByteArray();
+            bytes.reset();
+            return written;
+        }
+
+        private void close() {
+            try {
+                generator.close();
+            } catch (IOException ignored) {
+                // Solo libera los buffers del generador; la respuesta ya terminó o se canceló
+            }
+            bytes.release();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package pe.edu.vallegrande.user_service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Decorador de {@link ReactiveJwtDecoder} que guarda los JWT ya verificados, indexados por el SHA-256
+ * del token, hasta su {@code exp}. Un mismo token de Firebase se reutiliza durante una hora, así que
+ * solo la primera petición paga el parseo y la verificación RS256.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+    private final Timer verifyTimer;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, long maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ExpireAtTokenExpiry())
+                .recordStats()
+                .build();
+        this.verifyTimer = Timer.builder("security.jwt.verify")
+                .description("Parseo y verificación de firma de JWT no cacheados")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "security.jwt");
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        String key = digest(token);
+        Jwt cached = cache.getIfPresent(key);
+        if (cached != null && (cached.getExpiresAt() == null || Instant.now().isBefore(cached.getExpiresAt()))) {
+            return Mono.just(cached);
+        }
+        return Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start();
+                    return delegate.decode(token).doFinally(signal -> sample.stop(verifyTimer));
+                })
+                .doOnNext(jwt -> cache.put(key, jwt));
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cada entrada vive hasta el {@code exp} de su token.
+     */
+    private static class ExpireAtTokenExpiry implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            if (jwt.getExpiresAt() == null) return 0;
+            return Math.max(0, Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package pe.edu.vallegrande.user_service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Resuelve la {@link CorsConfiguration} de cada origen permitido. Cada configuración se construye
+ * una sola vez y no se modifica después, por lo que se comparte sin condiciones de carrera entre peticiones.
+ * Los orígenes fijos se precalculan al arrancar; los que encajan con un patrón (y los rechazados)
+ * se guardan en una caché acotada para no evaluar las expresiones regulares en cada petición.
+ */
+@Component
+public class CorsOriginResolver {
+
+    private static final List<String> ALLOWED_METHODS = List.of("GET", "POST", "PUT", "DELETE", "OPTIONS");
+
+    private final Map<String, CorsConfiguration> staticOrigins;
+    private final List<Pattern> originPatterns;
+    private final Cache<String, Optional<CorsConfiguration>> patternOrigins;
+
+    public CorsOriginResolver(@Value("${cors.allowed-origins:http://localhost:4200}") List<String> allowedOrigins,
+                              @Value("${cors.allowed-origin-patterns:}") List<String> allowedOriginPatterns,
+                              @Value("${cors.cache.max-size:1000}") long cacheMaxSize,
+                              MeterRegistry meterRegistry) {
+        this.staticOrigins = allowedOrigins.stream()
+                .filter(origin -> !origin.isBlank())
+                .map(String::trim)
+                .distinct()
+                .collect(Collectors.toUnmodifiableMap(Function.identity(), CorsOriginResolver::configurationFor));
+        this.originPatterns = allowedOriginPatterns.stream()
+                .filter(pattern -> !pattern.isBlank())
+                .map(pattern -> Pattern.compile(pattern.trim()))
+                .toList();
+        this.patternOrigins = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, patternOrigins, "cors.origins");
+    }
+
+    /**
+     * Configuración CORS para el origen, o {@code null} si no está permitido (bloquea CORS).
+     */
+    public CorsConfiguration resolve(String origin) {
+        if (origin == null) return null;
+        CorsConfiguration configuration = staticOrigins.get(origin);
+        if (configuration != null) return configuration;
+        if (originPatterns.isEmpty()) return null;
+        return patternOrigins.get(origin, key -> matchesPattern(key)
+                        ? Optional.of(configurationFor(key))
+                        : Optional.empty())
+                .orElse(null);
+    }
+
+    boolean isAllowedOrigin(String origin) {
+        return origin != null && (staticOrigins.containsKey(origin) || matchesPattern(origin));
+    }
+
+    private boolean matchesPattern(String origin) {
+        for (Pattern pattern : originPatterns) {
+            if (pattern.matcher(origin).matches()) return true;
+        }
+        return false;
+    }
+
+    private static CorsConfiguration configurationFor(String origin) {
+        CorsConfiguration config = new CorsConfiguration();
+        config.setAllowedOrigins(List.of(origin)); // Solo el origen validado
+        config.setAllowedMethods(ALLOWED_METHODS);
+        config.setAllowedHeaders(List.of("*"));
+        // Cabeceras de respuesta legibles desde el frontend: ETag (If-Match / If-None-Match), Retry-After (429)
+        // y Location (202 de las altas asíncronas)
+        config.setExposedHeaders(List.of(HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER, HttpHeaders.LOCATION));
+        config.setAllowCredentials(true);
+        config.setMaxAge(3600L); // Cache preflight for 1 hour
+        return config;
+    }
+}
@@ -0,0 +1,85 @@
+package pe.edu.vallegrande.user_service.config;
+
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Aplica las migraciones de {@code db/migration} con Flyway antes de aceptar tráfico.
+ * Cada versión se ejecuta una sola vez (historial en {@code flyway_schema_history}) y Flyway toma un
+ * bloqueo consultivo, así que las réplicas que arrancan a la vez no repiten el DDL. Las bases que ya
+ * tenían la tabla {@code users} se toman como versión 0 y reciben V1 en adelante.
+ * Con {@code db.migrations.enabled=false} las migraciones se aplican aparte (p. ej. un job previo al
+ * despliegue con {@code flyway migrate}) y las réplicas no tocan el esquema.
+ * La aplicación no usa JDBC: la URL se deriva de {@code spring.r2dbc.url} salvo que se indique {@code db.migrations.url}.
+ */
+@Slf4j
+@Configuration
+public class DatabaseMigrationConfig {
+
+    private static final Option<String> SSL_MODE = Option.valueOf("sslMode");
+
+    private final R2dbcProperties r2dbcProperties;
+    private final boolean enabled;
+    private final String url;
+
+    public DatabaseMigrationConfig(R2dbcProperties r2dbcProperties,
+                                   @Value("${db.migrations.enabled:true}") boolean enabled,
+                                   @Value("${db.migrations.url:}") String url) {
+        this.r2dbcProperties = r2dbcProperties;
+        this.enabled = enabled;
+        this.url = url;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!enabled) {
+            log.info("Migraciones desactivadas (db.migrations.enabled=false)");
+            return;
+        }
+        MigrateResult result = Flyway.configure()
+                .dataSource(url.isBlank() ? jdbcUrl(r2dbcProperties.getUrl()) : url,
+                        r2dbcProperties.getUsername(), r2dbcProperties.getPassword())
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                // CREATE INDEX CONCURRENTLY no admite transacción: esos scripts se ejecutan sin ella
+                .mixed(true)
+                // Con el bloqueo transaccional (por defecto) Flyway mantiene una transacción abierta y
+                // CREATE INDEX CONCURRENTLY espera a que termine: se usa el bloqueo de sesión
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        log.info("Esquema en la versión {} ({} migraciones aplicadas)",
+                result.targetSchemaVersion != null ? result.targetSchemaVersion : result.initialSchemaVersion,
+                result.migrationsExecuted);
+    }
+
+    /**
+     * {@code r2dbc:[pool:]postgresql://host:port/db?sslMode=...} → {@code jdbc:postgresql://host:port/db?sslmode=...}
+     */
+    static String jdbcUrl(String r2dbcUrl) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(r2dbcUrl);
+        StringBuilder jdbc = new StringBuilder("jdbc:postgresql://").append(options.getRequiredValue(ConnectionFactoryOptions.HOST));
+        Object port = options.getValue(ConnectionFactoryOptions.PORT);
+        if (port != null) jdbc.append(':').append(port);
+        Object database = options.getValue(ConnectionFactoryOptions.DATABASE);
+        jdbc.append('/').append(database != null ? database : "");
+        Object sslMode = options.getValue(SSL_MODE);
+        if (sslMode != null) {
+            jdbc.append("?sslmode=").append(sslMode.toString().toLowerCase(Locale.ROOT).replace('_', '-'));
+        } else if ("true".equalsIgnoreCase(String.valueOf(options.getValue(ConnectionFactoryOptions.SSL)))) {
+            jdbc.append("?sslmode=require");
+        }
+        return jdbc.toString();
+    }
+}
@@ -9,30 +9,44 @@ import org.springframework.context.annotation.Configuration;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Base64;
 
 /**
  * Configura e inicializa Firebase Admin SDK con credenciales en Base64.
+ * Si ya hay una app inicializada (p. ej. el arnés de carga apuntando a un emulador) se respeta y
+ * no se leen las credenciales; con otro {@code identity.provider} no se inicializa.
+ * Las peticiones HTTP del SDK usan {@code identity.firebase.timeout} como timeout de conexión y lectura.
  */
 @Configuration
 public class FirebaseConfig {
 
-    @Value("${firebase.credentials}")
+    @Value("${firebase.credentials:}")
     private String credentialsBase64;
 
+    @Value("${identity.provider:firebase}")
+    private String identityProvider;
+
+    @Value("${identity.firebase.timeout:10s}")
+    private Duration timeout;
+
     @PostConstruct
     public void initialize() throws IOException {
+        if (!"firebase".equalsIgnoreCase(identityProvider) || !FirebaseApp.getApps().isEmpty()) {
+            return;
+        }
+
         byte[] decoded = Base64.getDecoder().decode(credentialsBase64);
 
         try (ByteArrayInputStream stream = new ByteArrayInputStream(decoded)) {
             FirebaseOptions options = FirebaseOptions.builder()
                     .setCredentials(GoogleCredentials.fromStream(stream))
+                    .setConnectTimeout((int) timeout.toMillis())
+                    .setReadTimeout((int) timeout.toMillis())
                     .build();
 
-            if (FirebaseApp.getApps().isEmpty()) {
-                FirebaseApp.initializeApp(options);
-                System.out.println("✅ Firebase inicializado correctamente");
-            }
+            FirebaseApp.initializeApp(options);
+            System.out.println("✅ Firebase inicializado correctamente");
         }
     }
 }
@@ -0,0 +1,44 @@
+package pe.edu.vallegrande.user_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pe.edu.vallegrande.user_service.identity.FirebaseIdentityProvider;
+import pe.edu.vallegrande.user_service.identity.IdentityProvider;
+import pe.edu.vallegrande.user_service.identity.InMemoryIdentityProvider;
+import pe.edu.vallegrande.user_service.service.FirebaseCallExecutor;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Selecciona el proveedor de identidades con {@code identity.provider}: {@code firebase} (por defecto)
+ * o {@code in-memory} (pruebas y benchmarks, sin credenciales de Firebase).
+ */
+@Slf4j
+@Configuration
+public class IdentityConfig {
+
+    @Bean
+    public IdentityProvider identityProvider(@Value("${identity.provider:firebase}") String provider,
+                                             FirebaseCallExecutor firebaseCallExecutor,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${identity.firebase.timeout:10s}") Duration timeout,
+                                             @Value("${identity.firebase.batch-timeout:60s}") Duration batchTimeout,
+                                             @Value("${identity.firebase.coalesce:true}") boolean coalesce,
+                                             @Value("${identity.in-memory.latency:0ms}") Duration inMemoryLatency) {
+        switch (provider.toLowerCase(Locale.ROOT)) {
+            case "firebase" -> {
+                log.info("Proveedor de identidades: Firebase (timeout={}, lotes={}, agrupación={})", timeout, batchTimeout, coalesce);
+                return new FirebaseIdentityProvider(firebaseCallExecutor, meterRegistry, timeout, batchTimeout, coalesce);
+            }
+            case "in-memory" -> {
+                log.warn("Proveedor de identidades en memoria (latencia simulada {}): solo para pruebas", inMemoryLatency);
+                return new InMemoryIdentityProvider(inMemoryLatency);
+            }
+            default -> throw new IllegalArgumentException("identity.provider no soportado: " + provider);
+        }
+    }
+}
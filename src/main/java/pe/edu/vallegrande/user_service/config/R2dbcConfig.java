@@ -0,0 +1,17 @@
+package pe.edu.vallegrande.user_service.config;
+
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pe.edu.vallegrande.user_service.cache.UserCacheCoherence;
+
+@Configuration
+public class R2dbcConfig {
+
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer applicationNameCustomizer() {
+        // Identifica las sesiones de este proceso (pg_stat_activity y origen de las notificaciones de users_cache)
+        return builder -> builder.option(PostgresqlConnectionFactoryProvider.APPLICATION_NAME, UserCacheCoherence.NODE_ID);
+    }
+}
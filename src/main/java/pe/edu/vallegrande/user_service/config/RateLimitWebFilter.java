@@ -0,0 +1,129 @@
+package pe.edu.vallegrande.user_service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita las escrituras costosas de {@code /api/users} (hash de contraseña, Firebase, BD) por usuario
+ * (claim {@code sub} del JWT) y por ruta, con token buckets en memoria: sin locks y sin salto de red.
+ * Al agotarse responde {@code 429 Too Many Requests} con {@code Retry-After} en segundos.
+ * Cada instancia aplica el límite por separado; con N réplicas el máximo efectivo es N veces el configurado.
+ */
+@Slf4j
+@Component
+public class RateLimitWebFilter implements WebFilter, Ordered {
+
+    // Justo después de la cadena de Spring Security (orden -100), que ya ha resuelto el principal
+    private static final int ORDER = -99;
+    private static final String CACHE_NAME = "rate-limit.buckets";
+
+    private final boolean enabled;
+    private final Map<String, Rule> rules;
+    private final Cache<String, TokenBucket> buckets;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitWebFilter(@Value("${rate-limit.enabled:true}") boolean enabled,
+                              @Value("${rate-limit.password.capacity:5}") int passwordCapacity,
+                              @Value("${rate-limit.password.period:15m}") Duration passwordPeriod,
+                              @Value("${rate-limit.email.capacity:3}") int emailCapacity,
+                              @Value("${rate-limit.email.period:1h}") Duration emailPeriod,
+                              @Value("${rate-limit.profile.capacity:20}") int profileCapacity,
+                              @Value("${rate-limit.profile.period:1m}") Duration profilePeriod,
+                              @Value("${rate-limit.buckets.max-size:100000}") long maxBuckets,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        this.rules = Map.of(
+                key(HttpMethod.PUT, "/api/users/password"), new Rule("password", passwordCapacity, passwordPeriod),
+                key(HttpMethod.PUT, "/api/users/email"), new Rule("email", emailCapacity, emailPeriod),
+                key(HttpMethod.PUT, "/api/users/me"), new Rule("profile", profileCapacity, profilePeriod));
+
+        // Un cubo sin uso durante su periodo completo está lleno: descartarlo equivale a conservarlo
+        Duration longestPeriod = rules.values().stream().map(Rule::period).max(Duration::compareTo).orElse(Duration.ofHours(1));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(longestPeriod)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, CACHE_NAME);
+
+        for (Rule rule : rules.values()) {
+            log.info("Límite de peticiones {}: {} cada {}", rule.name(), rule.capacity(), rule.period());
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled) return chain.filter(exchange);
+
+        Rule rule = rules.get(key(exchange.getRequest().getMethod(), exchange.getRequest().getPath().pathWithinApplication().value()));
+        if (rule == null) return chain.filter(exchange);
+
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                // Sin autenticar: Spring Security ya habrá respondido 401; nada que limitar
+                .defaultIfEmpty("")
+                .flatMap(subject -> {
+                    if (subject.isEmpty()) return chain.filter(exchange);
+
+                    long now = System.nanoTime();
+                    TokenBucket bucket = buckets.get(rule.name() + ":" + subject, k -> new TokenBucket(rule.capacity(), rule.period(), now));
+                    long waitNanos = bucket.tryConsume(now);
+                    if (waitNanos == 0) {
+                        rule.allowed(meterRegistry).increment();
+                        return chain.filter(exchange);
+                    }
+
+                    rule.rejected(meterRegistry).increment();
+                    ServerHttpResponse response = exchange.getResponse();
+                    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    // Redondeo hacia arriba: reintentar antes volvería a fallar
+                    long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+                    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+                    return response.setComplete();
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private static String key(HttpMethod method, String path) {
+        return method.name() + " " + path;
+    }
+
+    /**
+     * Límite de una ruta: {@code capacity} peticiones por {@code period}, con ráfagas de hasta {@code capacity}.
+     */
+    private record Rule(String name, int capacity, Duration period) {
+
+        Counter allowed(MeterRegistry meterRegistry) {
+            return meterRegistry.counter("rate_limit.requests", "route", name, "outcome", "allowed");
+        }
+
+        Counter rejected(MeterRegistry meterRegistry) {
+            return meterRegistry.counter("rate_limit.requests", "route", name, "outcome", "rejected");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package pe.edu.vallegrande.user_service.config;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fuente de claves JWK para {@code NimbusReactiveJwtDecoder} que mantiene el JWK set de Firebase en memoria.
+ * Se descarga al arrancar (no en la primera petición) y se refresca en segundo plano antes de que caduque
+ * según el {@code Cache-Control: max-age} del endpoint. Un {@code kid} desconocido fuerza una recarga
+ * inmediata, compartida por todas las peticiones que lleguen mientras tanto.
+ */
+@Slf4j
+@Component
+public class RefreshingJwkSource implements DisposableBean {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration defaultRefreshInterval;
+    private final Duration minRefreshInterval;
+    private final double refreshAheadRatio;
+
+    private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet());
+    private final AtomicReference<Mono<JwkFetch>> inFlightRefresh = new AtomicReference<>();
+    private volatile Disposable scheduledRefresh;
+    private volatile Instant lastFetch = Instant.EPOCH;
+
+    public RefreshingJwkSource(WebClient.Builder webClientBuilder,
+                               @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                               @Value("${security.jwt.jwk.refresh-interval:15m}") Duration defaultRefreshInterval,
+                               @Value("${security.jwt.jwk.min-refresh-interval:30s}") Duration minRefreshInterval,
+                               @Value("${security.jwt.jwk.refresh-ahead-ratio:0.8}") double refreshAheadRatio) {
+        this.webClient = webClientBuilder.clone().build();
+        this.jwkSetUri = jwkSetUri;
+        this.defaultRefreshInterval = defaultRefreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.refreshAheadRatio = refreshAheadRatio;
+    }
+
+    /**
+     * Precarga las claves al arrancar y programa los refrescos periódicos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduleRefresh(Duration.ZERO);
+    }
+
+    /**
+     * Selecciona las claves que coinciden con la cabecera del token ({@code kid}, {@code alg}...).
+     */
+    public Flux<JWK> select(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        List<JWK> keys = selector.select(jwkSet.get());
+        if (!keys.isEmpty()) {
+            return Flux.fromIterable(keys);
+        }
+        // Clave desconocida: puede que Firebase haya rotado antes del próximo refresco programado.
+        // Se limita a una descarga por min-refresh-interval para que tokens con kid inventado no la disparen,
+        // salvo que aún no haya claves (arranque o descargas fallidas) o ya haya una en curso, a la que se une.
+        if (inFlightRefresh.get() == null && !jwkSet.get().getKeys().isEmpty()
+                && Instant.now().isBefore(lastFetch.plus(minRefreshInterval))) {
+            return Flux.empty();
+        }
+        return refresh().flatMapIterable(result -> selector.select(result.keys()));
+    }
+
+    /**
+     * Descarga el JWK set; la descarga programada y las peticiones concurrentes comparten la misma.
+     * Se lanza con independencia de quién espere el resultado: cancelar una petición no la interrumpe.
+     */
+    private Mono<JwkFetch> refresh() {
+        while (true) {
+            Mono<JwkFetch> current = inFlightRefresh.get();
+            if (current != null) return current;
+
+            Sinks.One<JwkFetch> result = Sinks.one();
+            Mono<JwkFetch> download = result.asMono();
+            if (inFlightRefresh.compareAndSet(null, download)) {
+                fetch()
+                        .map(response -> {
+                            JWKSet keys = parse(response.getBody());
+                            jwkSet.set(keys);
+                            return new JwkFetch(keys, nextRefresh(response.getHeaders()));
+                        })
+                        .doFinally(signal -> inFlightRefresh.compareAndSet(download, null))
+                        .subscribe(result::tryEmitValue, result::tryEmitError);
+                return download;
+            }
+        }
+    }
+
+    private void scheduleRefresh(Duration delay) {
+        scheduledRefresh = Mono.delay(delay)
+                .then(Mono.defer(this::refresh))
+                .map(result -> {
+                    log.debug("JWK set actualizado ({} claves), próximo refresco en {}", result.keys().getKeys().size(), result.next());
+                    return result.next();
+                })
+                .onErrorResume(e -> {
+                    log.warn("No se pudo refrescar el JWK set: {}", e.getMessage());
+                    return Mono.just(minRefreshInterval);
+                })
+                .subscribe(this::scheduleRefresh);
+    }
+
+    private Mono<ResponseEntity<String>> fetch() {
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .toEntity(String.class)
+                .doOnSubscribe(subscription -> lastFetch = Instant.now());
+    }
+
+    /**
+     * Refresca antes de que caduque la copia: una fracción del max-age anunciado, nunca por debajo del mínimo.
+     */
+    private Duration nextRefresh(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        Duration maxAge = defaultRefreshInterval;
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                maxAge = Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+            }
+        }
+        Duration ahead = Duration.ofMillis((long) (maxAge.toMillis() * refreshAheadRatio));
+        return ahead.compareTo(minRefreshInterval) < 0 ? minRefreshInterval : ahead;
+    }
+
+    private static JWKSet parse(String body) {
+        try {
+            return JWKSet.parse(body);
+        } catch (ParseException e) {
+            throw new IllegalStateException("JWK set inválido: " + e.getMessage(), e);
+        }
+    }
+
+    private record JwkFetch(JWKSet keys, Duration next) {
+    }
+
+    @Override
+    public void destroy() {
+        Disposable refresh = scheduledRefresh;
+        if (refresh != null) refresh.dispose();
+    }
+}
@@ -0,0 +1,75 @@
+package pe.edu.vallegrande.user_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.netty.handler.codec.compression.Zstd;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import reactor.netty.http.server.compression.GzipOption;
+import reactor.netty.http.server.compression.ZstdOption;
+
+/**
+ * Negociación de formato y compresión de las respuestas.
+ * <ul>
+ *     <li>{@code Accept: application/cbor} o {@code application/x-jackson-smile}: mismo modelo que el JSON,
+ *     con la configuración Jackson de Spring Boot, en formato binario. JSON sigue siendo el formato por defecto.</li>
+ *     <li>Compresión ({@code server.compression.*}): gzip y, si está disponible la librería nativa, zstd,
+ *     elegido por Netty según {@code Accept-Encoding}.</li>
+ * </ul>
+ */
+@Slf4j
+@Configuration
+public class ResponseEncodingConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilders;
+
+    public ResponseEncodingConfig(ObjectMapper objectMapper, ObjectProvider<Jackson2ObjectMapperBuilder> mapperBuilders) {
+        this.objectMapper = objectMapper;
+        this.mapperBuilders = mapperBuilders;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        ObjectMapper smileMapper = mapperBuilders.getObject().factory(new SmileFactory()).build();
+        configurer.defaultCodecs().jackson2SmileEncoder(new BinaryJacksonEncoders.Smile(smileMapper));
+        configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, BinaryJacksonEncoders.SMILE_MIME_TYPES));
+
+        // Los codecs propios van delante de los por defecto: sin este encoder JSON, CBOR sería el formato
+        // elegido para Accept: */* (o sin Accept)
+        ObjectMapper cborMapper = mapperBuilders.getObject().factory(new CBORFactory()).build();
+        configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+        configurer.customCodecs().register(new BinaryJacksonEncoders.Cbor(cborMapper));
+        configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, BinaryJacksonEncoders.CBOR_MIME_TYPES));
+    }
+
+    /**
+     * Niveles de gzip y zstd; el umbral y los tipos MIME los aplica Spring Boot ({@code server.compression}).
+     */
+    @Bean
+    public NettyServerCustomizer compressionOptionsCustomizer(@Value("${compression.gzip.level:6}") int gzipLevel,
+                                                              @Value("${compression.zstd.enabled:true}") boolean zstdEnabled,
+                                                              @Value("${compression.zstd.level:3}") int zstdLevel) {
+        GzipOption gzip = GzipOption.builder().compressionLevel(gzipLevel).build();
+        if (!zstdEnabled) {
+            return server -> server.compressOptions(gzip);
+        }
+        if (!Zstd.isAvailable()) {
+            log.warn("zstd no disponible en esta plataforma, se comprime solo con gzip: {}", Zstd.cause().getMessage());
+            return server -> server.compressOptions(gzip);
+        }
+        ZstdOption zstd = ZstdOption.builder().compressionLevel(zstdLevel).build();
+        return server -> server.compressOptions(gzip, zstd);
+    }
+}
@@ -1,15 +1,17 @@
 package pe.edu.vallegrande.user_service.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.reactive.EndpointRequest;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
@@ -26,43 +28,52 @@ import java.util.List;
 @EnableReactiveMethodSecurity
 public class SecurityConfig {
 
-    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
-    private String jwkSetUri;
+    @Value("${security.jwt.cache.max-size:10000}")
+    private long jwtCacheMaxSize;
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, ReactiveJwtDecoder jwtDecoder,
+                                                         Environment environment) {
+        // Con puerto de gestión propio (management.server.port) el actuator no es accesible desde fuera del
+        // clúster y Prometheus lo lee sin token; EndpointRequest solo coincide en ese puerto
+        boolean managementPort = ManagementPortType.get(environment) == ManagementPortType.DIFFERENT;
         http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
-                .authorizeExchange(auth -> auth
-                        .pathMatchers(HttpMethod.OPTIONS, "/**").permitAll()        // Necesario para CORS preflight
-                        .pathMatchers("/api/admin/**").hasRole("ADMIN")             // Solo admin
-                        .pathMatchers("/api/users/**").hasAnyRole("ADMIN", "USER")  // Admin o user
-                        .anyExchange().authenticated()                              // Todo lo demás necesita login (token)
-                )
+                .authorizeExchange(auth -> {
+                    auth.pathMatchers(HttpMethod.OPTIONS, "/**").permitAll()        // Necesario para CORS preflight
+                            .pathMatchers("/actuator/health").permitAll();          // Probes
+                    if (managementPort) {
+                        auth.matchers(EndpointRequest.to("prometheus")).permitAll(); // Scraping de métricas
+                    } else {
+                        auth.pathMatchers("/actuator/prometheus").hasRole("ADMIN");
+                    }
+                    auth.pathMatchers("/api/admin/**").hasRole("ADMIN")             // Solo admin
+                            .pathMatchers("/api/users/**").hasAnyRole("ADMIN", "USER")  // Admin o user
+                            .anyExchange().authenticated();                         // Todo lo demás necesita login (token)
+                })
                 .oauth2ResourceServer(oauth -> oauth
                         .jwt(jwt -> jwt
-                                .jwtDecoder(jwtDecoder())
+                                .jwtDecoder(jwtDecoder)
                                 .jwtAuthenticationConverter(this::convertJwt)
                         )
                 );
         return http.build();
     }
 
+    /**
+     * Verificación con las claves precargadas por {@link RefreshingJwkSource} y caché de tokens ya verificados.
+     */
     @Bean
-    public ReactiveJwtDecoder jwtDecoder() {
-        return NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    public ReactiveJwtDecoder jwtDecoder(RefreshingJwkSource jwkSource, MeterRegistry meterRegistry) {
+        NimbusReactiveJwtDecoder nimbusDecoder = NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build();
+        return new CachingReactiveJwtDecoder(nimbusDecoder, jwtCacheMaxSize, meterRegistry);
     }
 
-    private Mono<CustomAuthenticationToken> convertJwt(Jwt jwt) {
+    Mono<CustomAuthenticationToken> convertJwt(Jwt jwt) {
         String role = jwt.getClaimAsString("role");
         Collection<GrantedAuthority> authorities = role != null
                 ? List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()))
                 : List.of();
         return Mono.just(new CustomAuthenticationToken(jwt, authorities));
     }
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
 }
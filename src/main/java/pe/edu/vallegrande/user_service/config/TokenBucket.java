@@ -0,0 +1,42 @@
+package pe.edu.vallegrande.user_service.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sin locks (GCRA): todo el estado es el instante teórico de la próxima llegada, un único
+ * {@link AtomicLong} que se avanza con CAS. Equivale a un cubo de {@code capacity} fichas que se
+ * rellena a razón de {@code capacity / period}.
+ */
+final class TokenBucket {
+
+    // Nanosegundos que tarda en reponerse una ficha
+    private final long emissionInterval;
+    // Ráfaga admitida por encima del ritmo medio (capacity - 1 fichas)
+    private final long burstTolerance;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(int capacity, Duration period, long nowNanos) {
+        this.emissionInterval = Math.max(1, period.toNanos() / capacity);
+        this.burstTolerance = emissionInterval * (capacity - 1);
+        // Cubo lleno al crearlo
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Consume una ficha si hay alguna. Devuelve 0 si se concede o los nanosegundos hasta la siguiente ficha.
+     */
+    long tryConsume(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long allowedAt = arrival - burstTolerance;
+            if (nowNanos - allowedAt < 0) {
+                return allowedAt - nowNanos;
+            }
+            long next = Math.max(arrival, nowNanos) + emissionInterval;
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+}
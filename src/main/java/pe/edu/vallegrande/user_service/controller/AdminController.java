@@ -2,10 +2,13 @@ package pe.edu.vallegrande.user_service.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -13,22 +16,63 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import pe.edu.vallegrande.user_service.dto.BatchRequestDto;
+import pe.edu.vallegrande.user_service.dto.BulkItemResultDto;
+import pe.edu.vallegrande.user_service.dto.ProvisioningStatusDto;
+import pe.edu.vallegrande.user_service.dto.UserChangeEventDto;
 import pe.edu.vallegrande.user_service.dto.UserCreateDto;
 import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.dto.UserField;
+import pe.edu.vallegrande.user_service.dto.UserPageDto;
+import pe.edu.vallegrande.user_service.dto.UserSearchPageDto;
+import pe.edu.vallegrande.user_service.service.UserBatchService;
+import pe.edu.vallegrande.user_service.service.UserChangeFeed;
+import pe.edu.vallegrande.user_service.service.UserImportService;
+import pe.edu.vallegrande.user_service.service.UserProvisioningService;
 import pe.edu.vallegrande.user_service.service.UserService;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("/api/admin/users")
 public class AdminController {
 
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserBatchService userBatchService;
+    private final UserProvisioningService userProvisioningService;
+    private final UserChangeFeed userChangeFeed;
+    private final String provisioningMode;
+    private final int maxPageSize;
+    private final int maxSearchSize;
+    private final Duration changesHeartbeat;
 
     @Autowired
-    public AdminController(UserService userService) {
+    public AdminController(UserService userService,
+                           UserImportService userImportService,
+                           UserBatchService userBatchService,
+                           UserProvisioningService userProvisioningService,
+                           UserChangeFeed userChangeFeed,
+                           @Value("${users.provisioning.mode:sync}") String provisioningMode,
+                           @Value("${users.page.max-size:500}") int maxPageSize,
+                           @Value("${users.search.max-size:100}") int maxSearchSize,
+                           @Value("${users.changes.heartbeat:15s}") Duration changesHeartbeat) {
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.userBatchService = userBatchService;
+        this.userProvisioningService = userProvisioningService;
+        this.userChangeFeed = userChangeFeed;
+        this.provisioningMode = provisioningMode;
+        this.maxPageSize = maxPageSize;
+        this.maxSearchSize = maxSearchSize;
+        this.changesHeartbeat = changesHeartbeat;
     }
 
     // 🔍 Obtener todos los usuarios
@@ -38,11 +82,83 @@ public class AdminController {
         return userService.findAllUsers();
     }
 
+    // 🔍 Solo los campos indicados: ?fields=id,name,profileImageThumbnail
+    @GetMapping(params = "fields")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<Map<String, Object>> getAllUsers(@RequestParam String fields) {
+        return userService.findAllUsers(UserField.parse(fields));
+    }
+
+    // 🌊 Listado completo en streaming NDJSON (un usuario por línea, con backpressure desde la BD)
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<UserDto> streamAllUsers() {
+        return userService.streamAllUsers();
+    }
+
+    @GetMapping(params = "fields", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<Map<String, Object>> streamAllUsers(@RequestParam String fields) {
+        return userService.findAllUsers(UserField.parse(fields));
+    }
+
+    // 📄 Listado paginado por cursor (keyset sobre id): ?after=<next>&limit=<n>
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<UserPageDto<UserDto>> getUsersPage(@RequestParam(required = false) Integer after,
+                                                   @RequestParam(defaultValue = "50") int limit) {
+        return userService.findUsersPage(after, pageSize(limit));
+    }
+
+    @GetMapping(value = "/page", params = "fields")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<UserPageDto<Map<String, Object>>> getUsersPage(@RequestParam(required = false) Integer after,
+                                                               @RequestParam(defaultValue = "50") int limit,
+                                                               @RequestParam String fields) {
+        return userService.findUsersPage(after, pageSize(limit), UserField.parse(fields));
+    }
+
+    // 🔎 Búsqueda por nombre, apellidos, email o documento (prefijo y aproximada), por relevancia:
+    //    ?q=<texto>&after=<next>&limit=<n>&fields=<campos>
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<UserSearchPageDto<Map<String, Object>>> searchUsers(@RequestParam String q,
+                                                                    @RequestParam(required = false) String after,
+                                                                    @RequestParam(defaultValue = "20") int limit,
+                                                                    @RequestParam(required = false) String fields) {
+        Set<UserField> selected = fields != null ? UserField.parse(fields) : EnumSet.allOf(UserField.class);
+        return userService.searchUsers(q, after, Math.max(1, Math.min(limit, maxSearchSize)), selected);
+    }
+
+    // 📡 Feed de cambios (SSE): CREATED, UPDATED, DELETED, ROLE_CHANGED, EMAIL_CHANGED con secuencia.
+    //    Al reconectar con Last-Event-ID se reenvían los eventos perdidos; RESYNC si ya no están en la ventana.
+    //    Para sincronizar desde cero: suscribirse, cargar el listado completo y aplicar los eventos por versión
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<ServerSentEvent<UserChangeEventDto>> streamChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Flux<ServerSentEvent<UserChangeEventDto>> events = userChangeFeed.changes(lastEventId)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(event.getId())
+                        .event(event.getType().name())
+                        .build());
+        // Comentarios periódicos para que proxies y balanceadores no cierren la conexión inactiva
+        Flux<ServerSentEvent<UserChangeEventDto>> heartbeats = Flux.interval(changesHeartbeat)
+                .map(tick -> ServerSentEvent.<UserChangeEventDto>builder().comment("keepalive").build());
+        return Flux.merge(events, heartbeats);
+    }
+
     // 🔍 Obtener usuario por ID
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public Mono<UserDto> getUserById(@PathVariable Integer id) {
-        return userService.findById(id);
+    public Mono<ResponseEntity<UserDto>> getUserById(@PathVariable Integer id) {
+        return userService.findById(id).map(UserETags::ok);
+    }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<Map<String, Object>> getUserById(@PathVariable Integer id, @RequestParam String fields) {
+        return userService.findById(id, UserField.parse(fields));
     }
 
     // 🔍 Obtener usuario por Email
@@ -52,6 +168,12 @@ public class AdminController {
         return userService.findByEmail(email);
     }
 
+    @GetMapping(value = "/email/{email}", params = "fields")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<Map<String, Object>> getUserByEmail(@PathVariable String email, @RequestParam String fields) {
+        return userService.findByEmail(email, UserField.parse(fields));
+    }
+
     // ✅ Verificar si un email ya está registrado
     @GetMapping("/email-exists/{email}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -61,30 +183,64 @@ public class AdminController {
                 .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(false)));
     }
 
-    // 🆕 Crear usuario con imagen
+    // 🆕 Crear usuario con imagen. En modo outbox (o con "Prefer: respond-async") responde 202 con el usuario
+    //    PENDING y la URL de estado en Location; Firebase y Supabase se completan en segundo plano
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasRole('ADMIN')")
-    public Mono<UserDto> createUser(@RequestPart("user") String userJson,
-                                    @RequestPart(value = "file", required = false) FilePart file) {
+    public Mono<ResponseEntity<UserDto>> createUser(@RequestPart("user") String userJson,
+                                                    @RequestPart(value = "file", required = false) FilePart file,
+                                                    @RequestHeader(value = "Prefer", required = false) String prefer) {
         ObjectMapper mapper = new ObjectMapper();
+        UserCreateDto dto;
         try {
-            UserCreateDto dto = mapper.readValue(userJson, UserCreateDto.class);
-            return userService.createUser(dto, file);
+            dto = mapper.readValue(userJson, UserCreateDto.class);
         } catch (Exception e) {
             return Mono.error(new IllegalArgumentException("Error al parsear JSON: " + e.getMessage()));
         }
+        boolean async = "outbox".equalsIgnoreCase(provisioningMode) || (prefer != null && prefer.contains("respond-async"));
+        if (!async) {
+            return userService.createUser(dto, file).map(ResponseEntity::ok);
+        }
+        return userProvisioningService.enqueue(dto, file)
+                .map(pending -> ResponseEntity.accepted()
+                        .location(URI.create("/api/admin/users/" + pending.getId() + "/provisioning"))
+                        .body(pending));
+    }
+
+    // ⏳ Estado del aprovisionamiento asíncrono (PENDING, ACTIVE o FAILED, con intentos y último error)
+    @GetMapping("/{id}/provisioning")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ProvisioningStatusDto> getProvisioningStatus(@PathVariable Integer id) {
+        return userProvisioningService.status(id);
+    }
+
+    // 📥 Importación masiva desde CSV (primera línea = cabecera); resultados por fila en NDJSON
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<BulkItemResultDto> importUsersCsv(@RequestBody Flux<String> lines) {
+        return userImportService.importCsv(lines);
+    }
+
+    // 📥 Importación masiva desde NDJSON (un usuario por línea); resultados por fila en NDJSON
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<BulkItemResultDto> importUsersNdjson(@RequestBody Flux<String> lines) {
+        return userImportService.importNdjson(lines);
     }
 
     // ✏️ Actualizar usuario con nueva imagen (si aplica)
     @PutMapping(value = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasRole('ADMIN')")
-    public Mono<UserDto> updateUser(@PathVariable Integer id,
-                                    @RequestPart("user") String userJson,
-                                    @RequestPart(value = "file", required = false) FilePart file) {
+    public Mono<ResponseEntity<UserDto>> updateUser(@PathVariable Integer id,
+                                                    @RequestPart("user") String userJson,
+                                                    @RequestPart(value = "file", required = false) FilePart file,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         ObjectMapper mapper = new ObjectMapper();
         try {
             UserDto dto = mapper.readValue(userJson, UserDto.class);
-            return userService.updateUser(id, dto, file);
+            Long expectedVersion = UserETags.expectedVersion(ifMatch, id);
+            return UserETags.preconditionFailed(expectedVersion, userService.updateUser(id, dto, file, expectedVersion)
+                    .map(UserETags::ok));
         } catch (Exception e) {
             return Mono.error(new IllegalArgumentException("Error al parsear JSON: " + e.getMessage()));
         }
@@ -99,4 +255,22 @@ public class AdminController {
                 .thenReturn(ResponseEntity.noContent().<Void>build())
                 .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().<Void>build()));
     }
+
+    // 🗑️ Eliminar varios usuarios: {"ids": [..]} → resultado por ID
+    @PostMapping("/batch-delete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<BulkItemResultDto> deleteUsers(@RequestBody BatchRequestDto request) {
+        return userBatchService.deleteUsers(request.getIds());
+    }
+
+    // 🏷️ Asignar rol a varios usuarios: {"ids": [..], "role": ["ADMIN"]} → resultado por ID
+    @PutMapping("/batch-role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<BulkItemResultDto> assignRole(@RequestBody BatchRequestDto request) {
+        return userBatchService.assignRole(request.getIds(), request.getRole());
+    }
+
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
 }
@@ -1,12 +1,16 @@
 package pe.edu.vallegrande.user_service.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import pe.edu.vallegrande.user_service.config.CustomAuthenticationToken;
 import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.dto.UserField;
 import pe.edu.vallegrande.user_service.service.UserService;
+import pe.edu.vallegrande.user_service.service.VersionConflictException;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
@@ -23,24 +27,36 @@ class UserController {
     }
 
     /**
-     * 🔍 Obtener mi perfil por UID
+     * 🔍 Obtener mi perfil por UID. Con ETag: si el cliente envía If-None-Match con la versión actual
+     * responde 304 sin cuerpo (y sin tocar la BD si el perfil está en caché)
      */
     @GetMapping("/me")
     //@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public Mono<UserDto> getMyProfile(@AuthenticationPrincipal CustomAuthenticationToken auth) {
-        return userService.findMyProfile(auth.getName());
+    public Mono<ResponseEntity<UserDto>> getMyProfile(@AuthenticationPrincipal CustomAuthenticationToken auth) {
+        return userService.findMyProfile(auth.getName()).map(UserETags::ok);
     }
 
     /**
-     * ✏️ Editar mis propios datos (excepto email/password/rol)
+     * 🔍 Mi perfil con solo los campos indicados: /me?fields=name,profileImageThumbnail
+     */
+    @GetMapping(value = "/me", params = "fields")
+    public Mono<Map<String, Object>> getMyProfile(@AuthenticationPrincipal CustomAuthenticationToken auth,
+                                                  @RequestParam String fields) {
+        return userService.findMyProfile(auth.getName(), UserField.parse(fields));
+    }
+
+    /**
+     * ✏️ Editar mis propios datos (excepto email/password/rol). Con If-Match solo se aplica si el perfil
+     * no cambió desde esa versión; si no, 412
      */
     @PutMapping("/me")
     //@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-    public Mono<Map<String, Object>> updateMyProfile(@AuthenticationPrincipal CustomAuthenticationToken auth,
-                                                     @RequestBody Map<String, Object> payload) {
+    public Mono<ResponseEntity<Map<String, Object>>> updateMyProfile(@AuthenticationPrincipal CustomAuthenticationToken auth,
+                                                                     @RequestBody Map<String, Object> payload,
+                                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         String uid = auth.getName();
         if (payload.get("name") == null || payload.get("lastName") == null || payload.get("documentNumber") == null) {
-            return Mono.just(Map.of("error", "Faltan campos obligatorios"));
+            return Mono.just(ResponseEntity.ok(Map.of("error", "Faltan campos obligatorios")));
         }
 
         UserDto dto = new UserDto();
@@ -51,9 +67,16 @@ class UserController {
         dto.setCellPhone((String) payload.get("cellPhone"));
         dto.setProfileImage((String) payload.get("profileImage"));
 
-        return userService.updateMyProfile(uid, dto)
-                .map(user -> Map.of("message", "✅ Perfil actualizado correctamente", "user", user))
-                .onErrorResume(e -> Mono.just(Map.of("error", e.getMessage())));
+        // El ETag incluye el id: se comprueba contra el del usuario autenticado (leído de la caché de perfiles)
+        Mono<UserDto> update = ifMatch == null
+                ? userService.updateMyProfile(uid, dto, null)
+                : userService.findMyProfile(uid)
+                        .flatMap(me -> userService.updateMyProfile(uid, dto, UserETags.expectedVersion(ifMatch, me.getId())));
+        // Sin id: solo indica si la petición es condicional (412) o no (el conflicto responde 409)
+        return UserETags.preconditionFailed(UserETags.expectedVersion(ifMatch, null), update
+                        .map(user -> UserETags.<Map<String, Object>>ok(user, Map.of("message", "✅ Perfil actualizado correctamente", "user", user))))
+                .onErrorResume(e -> !(e instanceof VersionConflictException),
+                        e -> Mono.just(ResponseEntity.ok(Map.of("error", e.getMessage()))));
     }
 
     /**
@@ -0,0 +1,64 @@
+package pe.edu.vallegrande.user_service.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.service.VersionConflictException;
+import reactor.core.publisher.Mono;
+
+/**
+ * ETags fuertes de usuario derivados de {@code id} y {@code version}: se calculan sin serializar el cuerpo,
+ * también desde la caché de perfiles. Spring WebFlux responde {@code 304} a un {@code If-None-Match}
+ * coincidente sin escribir el cuerpo.
+ */
+final class UserETags {
+
+    // El navegador guarda la respuesta pero la revalida siempre (If-None-Match)
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private UserETags() {
+    }
+
+    static String of(UserDto user) {
+        return "\"" + user.getId() + "-" + user.getVersion() + "\"";
+    }
+
+    static <T> ResponseEntity<T> ok(UserDto user, T body) {
+        return ResponseEntity.ok().eTag(of(user)).cacheControl(REVALIDATE).body(body);
+    }
+
+    static ResponseEntity<UserDto> ok(UserDto user) {
+        return ok(user, user);
+    }
+
+    /**
+     * Versión esperada según {@code If-Match}: null sin cabecera o con {@code *}; -1 si el ETag no es de
+     * este usuario o no tiene el formato esperado (nunca coincide). {@code userId} null omite esa comprobación.
+     */
+    static Long expectedVersion(String ifMatch, Integer userId) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) return null;
+        String tag = ifMatch.trim();
+        // If-Match usa comparación fuerte: un ETag débil nunca coincide
+        if (tag.startsWith("W/") || tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) return -1L;
+        tag = tag.substring(1, tag.length() - 1);
+        int separator = tag.lastIndexOf('-');
+        if (separator <= 0) return -1L;
+        try {
+            if (userId != null && !userId.equals(Integer.valueOf(tag.substring(0, separator)))) return -1L;
+            return Long.valueOf(tag.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Con {@code If-Match} ({@code expectedVersion} no nulo) traduce un conflicto de versión en
+     * {@code 412 Precondition Failed}; sin él el conflicto se propaga y responde {@code 409}.
+     */
+    static <T> Mono<ResponseEntity<T>> preconditionFailed(Long expectedVersion, Mono<ResponseEntity<T>> response) {
+        if (expectedVersion == null) return response;
+        return response.onErrorResume(VersionConflictException.class,
+                e -> Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<T>build()));
+    }
+}
@@ -0,0 +1,16 @@
+package pe.edu.vallegrande.user_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchRequestDto {
+    private List<Integer> ids;
+    // Solo para la asignación de rol por lote
+    private List<String> role;
+}
@@ -0,0 +1,29 @@
+package pe.edu.vallegrande.user_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un elemento dentro de una operación masiva (importación, borrado, cambio de rol...).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkItemResultDto {
+    // Posición del elemento en la entrada (línea del archivo o índice de la lista)
+    private Long index;
+    // Identificador de negocio del elemento (email en importaciones, ID en operaciones por lote)
+    private String key;
+    private Integer id;
+    private boolean success;
+    private String message;
+
+    public static BulkItemResultDto ok(long index, String key, Integer id) {
+        return new BulkItemResultDto(index, key, id, true, null);
+    }
+
+    public static BulkItemResultDto failed(long index, String key, Integer id, String message) {
+        return new BulkItemResultDto(index, key, id, false, message);
+    }
+}
@@ -0,0 +1,21 @@
+package pe.edu.vallegrande.user_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pe.edu.vallegrande.user_service.model.UserStatus;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProvisioningStatusDto {
+    private Integer userId;
+    private UserStatus status;
+    // Intentos realizados por el worker (0 si aún no se ha procesado)
+    private Integer attempts;
+    private String lastError;
+    // Próximo reintento; null si ya terminó (ACTIVE o FAILED)
+    private Instant nextAttemptAt;
+}
@@ -0,0 +1,26 @@
+package pe.edu.vallegrande.user_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserChangeEventDto {
+    // "<instancia>-<secuencia>": el id del evento SSE que el cliente reenvía en Last-Event-ID
+    private String id;
+    private long sequence;
+    private UserChangeType type;
+    private Integer userId;
+    private String firebaseUid;
+    // Versión de la fila tras el cambio; los consumidores descartan eventos con versión menor a la que ya tienen
+    private Long version;
+    private Instant timestamp;
+    // Estado completo tras el cambio; null en DELETED, RESYNC y en los cambios hechos por otra réplica
+    private UserDto user;
+    // Solo en EMAIL_CHANGED
+    private String previousEmail;
+}
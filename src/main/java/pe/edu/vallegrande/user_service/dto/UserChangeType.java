@@ -0,0 +1,14 @@
+package pe.edu.vallegrande.user_service.dto;
+
+/**
+ * Tipo de cambio publicado en el feed de {@code GET /api/admin/users/changes}.
+ */
+public enum UserChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    ROLE_CHANGED,
+    EMAIL_CHANGED,
+    // El Last-Event-ID ya no está en la ventana (o es de otra instancia): recargar el listado completo
+    RESYNC
+}
@@ -1,9 +1,12 @@
 package pe.edu.vallegrande.user_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import pe.edu.vallegrande.user_service.model.ImageVariant;
 import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.model.UserStatus;
 
 import java.util.List;
 
@@ -21,6 +24,20 @@ public class UserDto {
     private String email;
     private List<String> role;
     private String profileImage;
+    private UserStatus status;
+    // Versión de la fila; el ETag de las lecturas se deriva de id + versión
+    private Long version;
+
+    // 🖼️ URLs de las variantes redimensionadas (solo lectura, derivadas de profileImage)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getProfileImageThumbnail() {
+        return ImageVariant.THUMBNAIL.resolve(profileImage);
+    }
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getProfileImageMedium() {
+        return ImageVariant.MEDIUM.resolve(profileImage);
+    }
 
     // ✅ Método estático para convertir de Entity → DTO
     public static UserDto fromEntity(User user) {
@@ -34,7 +51,9 @@ public class UserDto {
                 user.getCellPhone(),
                 user.getEmail(),
                 user.getRole(),
-                user.getProfileImage()
+                user.getProfileImage(),
+                user.getStatus(),
+                user.getVersion()
         );
     }
 }
@@ -0,0 +1,100 @@
+package pe.edu.vallegrande.user_service.dto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Campos de {@link UserDto} que se pueden pedir con {@code ?fields=}, con la columna de la que se leen.
+ * La contraseña no figura: ninguna proyección la selecciona.
+ */
+public enum UserField {
+    ID("id", "id", UserDto::getId),
+    FIREBASE_UID("firebaseUid", "firebase_uid", UserDto::getFirebaseUid),
+    NAME("name", "name", UserDto::getName),
+    LAST_NAME("lastName", "last_name", UserDto::getLastName),
+    DOCUMENT_TYPE("documentType", "document_type", UserDto::getDocumentType),
+    DOCUMENT_NUMBER("documentNumber", "document_number", UserDto::getDocumentNumber),
+    CELL_PHONE("cellPhone", "cell_phone", UserDto::getCellPhone),
+    EMAIL("email", "email", UserDto::getEmail),
+    ROLE("role", "role", UserDto::getRole),
+    PROFILE_IMAGE("profileImage", "profile_image", UserDto::getProfileImage),
+    PROFILE_IMAGE_THUMBNAIL("profileImageThumbnail", "profile_image", UserDto::getProfileImageThumbnail),
+    PROFILE_IMAGE_MEDIUM("profileImageMedium", "profile_image", UserDto::getProfileImageMedium),
+    STATUS("status", "status", UserDto::getStatus),
+    VERSION("version", "version", UserDto::getVersion);
+
+    private static final Map<String, UserField> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(UserField::getName, Function.identity()));
+
+    // Columnas de todas las lecturas sin ?fields= (todas menos password)
+    public static final List<String> ALL_COLUMNS = List.copyOf(columns(EnumSet.allOf(UserField.class)));
+
+    private final String name;
+    private final String column;
+    private final Function<UserDto, Object> accessor;
+
+    UserField(String name, String column, Function<UserDto, Object> accessor) {
+        this.name = name;
+        this.column = column;
+        this.accessor = accessor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Interpreta {@code ?fields=name,lastName,profileImageThumbnail}.
+     */
+    public static Set<UserField> parse(String fields) {
+        Set<UserField> parsed = EnumSet.noneOf(UserField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) continue;
+            UserField field = BY_NAME.get(trimmed);
+            if (field == null) {
+                throw new IllegalArgumentException("❌ Campo desconocido: " + trimmed);
+            }
+            parsed.add(field);
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("❌ Debe indicar al menos un campo en fields");
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+
+    /**
+     * Columnas a seleccionar para los campos pedidos; el ID se incluye siempre (cursor, caché).
+     */
+    public static List<String> columns(Set<UserField> fields) {
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add(ID.column);
+        for (UserField field : fields) {
+            columns.add(field.column);
+        }
+        return List.copyOf(columns);
+    }
+
+    /**
+     * Representación parcial del usuario con solo los campos pedidos, en el orden de declaración.
+     */
+    public static Map<String, Object> project(UserDto user, Set<UserField> fields) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (UserField field : fields) {
+            projected.put(field.name, field.accessor.apply(user));
+        }
+        return projected;
+    }
+}
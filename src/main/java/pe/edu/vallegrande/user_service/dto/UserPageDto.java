@@ -0,0 +1,17 @@
+package pe.edu.vallegrande.user_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserPageDto<T> {
+    // UserDto completo o su proyección (?fields=)
+    private List<T> items;
+    // Cursor para pedir la siguiente página (?after=next); null si es la última
+    private Integer next;
+}
@@ -0,0 +1,17 @@
+package pe.edu.vallegrande.user_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSearchPageDto<T> {
+    // Resultados ordenados por relevancia
+    private List<T> items;
+    // Cursor opaco para la siguiente página (?after=next); null si es la última
+    private String next;
+}
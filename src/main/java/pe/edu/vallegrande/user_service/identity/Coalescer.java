@@ -0,0 +1,110 @@
+package pe.edu.vallegrande.user_service.identity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.BiFunction;
+
+/**
+ * Agrupa las peticiones con la misma clave que llegan mientras otra llamada para esa clave está en curso:
+ * una petición sin nada pendiente se envía en el acto, y las que llegan durante esa llamada se resuelven
+ * juntas en la siguiente (hasta {@code maxSize} por llamada). Las llamadas de una misma clave no se solapan.
+ * {@code flush} recibe los elementos en orden de llegada y devuelve los errores por posición, como las APIs
+ * por lotes; cada petición recibe su propio resultado. Desactivado, cada petición es una llamada independiente.
+ */
+final class Coalescer<K, T> {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final BiFunction<K, List<T>, Mono<Map<Integer, String>>> flush;
+    private final Counter coalesced;
+    // Claves con una llamada en curso y las peticiones que esperan a que termine
+    private final Map<K, Queue<Pending<T>>> inFlight = new HashMap<>();
+
+    Coalescer(String operation, boolean enabled, int maxSize,
+              BiFunction<K, List<T>, Mono<Map<Integer, String>>> flush, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.flush = flush;
+        this.coalesced = Counter.builder("identity.calls.coalesced")
+                .description("Peticiones resueltas dentro de la llamada de otra")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    Mono<Void> submit(K key, T item) {
+        if (!enabled) {
+            return flush.apply(key, List.of(item))
+                    .flatMap(errors -> errors.isEmpty() ? Mono.<Void>empty() : Mono.error(new IllegalStateException(errors.get(0))));
+        }
+        return Mono.defer(() -> {
+            Pending<T> pending = new Pending<>(item, Sinks.empty());
+            boolean idle;
+            synchronized (inFlight) {
+                Queue<Pending<T>> waiting = inFlight.get(key);
+                idle = waiting == null;
+                if (idle) {
+                    inFlight.put(key, new ArrayDeque<>());
+                } else {
+                    waiting.add(pending);
+                }
+            }
+            if (idle) execute(key, List.of(pending));
+            return pending.result().asMono();
+        });
+    }
+
+    private void execute(K key, List<Pending<T>> batch) {
+        coalesced.increment(batch.size() - 1);
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            items.add(pending.item());
+        }
+        flush.apply(key, items)
+                .defaultIfEmpty(Map.of())
+                .subscribe(errors -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        String error = errors.get(i);
+                        if (error != null) {
+                            batch.get(i).result().tryEmitError(new IllegalStateException(error));
+                        } else {
+                            batch.get(i).result().tryEmitEmpty();
+                        }
+                    }
+                    next(key);
+                }, error -> {
+                    batch.forEach(pending -> pending.result().tryEmitError(error));
+                    next(key);
+                });
+    }
+
+    /**
+     * Tras terminar una llamada envía las peticiones que llegaron mientras tanto, o libera la clave.
+     */
+    private void next(K key) {
+        List<Pending<T>> batch;
+        synchronized (inFlight) {
+            Queue<Pending<T>> waiting = inFlight.get(key);
+            if (waiting.isEmpty()) {
+                inFlight.remove(key);
+                return;
+            }
+            batch = new ArrayList<>(Math.min(waiting.size(), maxSize));
+            while (!waiting.isEmpty() && batch.size() < maxSize) {
+                batch.add(waiting.poll());
+            }
+        }
+        execute(key, batch);
+    }
+
+    private record Pending<T>(T item, Sinks.Empty<Void> result) {
+    }
+}
@@ -0,0 +1,139 @@
+package pe.edu.vallegrande.user_service.identity;
+
+import com.google.firebase.auth.ErrorInfo;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.ImportUserRecord;
+import com.google.firebase.auth.UserImportOptions;
+import com.google.firebase.auth.UserRecord;
+import com.google.firebase.auth.hash.Bcrypt;
+import io.micrometer.core.instrument.MeterRegistry;
+import pe.edu.vallegrande.user_service.service.FirebaseCallExecutor;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * {@link IdentityProvider} sobre Firebase Auth. Las llamadas bloqueantes del SDK se ejecutan en el
+ * pool de {@link FirebaseCallExecutor} y cada una tiene su timeout ({@code identity.firebase.timeout},
+ * más amplio para los lotes).
+ * Los cambios de rol, email y contraseña de un mismo UID que llegan mientras otro {@code updateUser} de ese
+ * UID está en curso se combinan en el siguiente ({@code identity.firebase.coalesce}); un cambio aislado se
+ * envía sin esperar. Si esa llamada falla, fallan todas las peticiones que incluía. Los claims de UIDs distintos no admiten lotes en el SDK y siguen siendo llamadas
+ * independientes. Los borrados individuales usan {@code deleteUser} (que informa USER_NOT_FOUND):
+ * {@code deleteUsers} tiene un límite de ~1 QPS y queda para los borrados por lote explícitos.
+ */
+public class FirebaseIdentityProvider implements IdentityProvider {
+
+    private final FirebaseCallExecutor firebaseCallExecutor;
+    private final Duration timeout;
+    private final Duration batchTimeout;
+    private final Coalescer<String, Change> updates;
+
+    public FirebaseIdentityProvider(FirebaseCallExecutor firebaseCallExecutor, MeterRegistry meterRegistry,
+                                    Duration timeout, Duration batchTimeout, boolean coalesce) {
+        this.firebaseCallExecutor = firebaseCallExecutor;
+        this.timeout = timeout;
+        this.batchTimeout = batchTimeout;
+        this.updates = new Coalescer<>("updateUser", coalesce, Integer.MAX_VALUE, this::update, meterRegistry);
+    }
+
+    @Override
+    public Mono<String> createUser(String email, String password) {
+        UserRecord.CreateRequest request = new UserRecord.CreateRequest()
+                .setEmail(email)
+                .setPassword(password)
+                .setEmailVerified(false)
+                .setDisabled(false);
+        return call("createUser", timeout, () -> FirebaseAuth.getInstance().createUser(request).getUid());
+    }
+
+    @Override
+    public Mono<Void> setRole(String uid, String role) {
+        return updates.submit(uid, new Change(null, null, role));
+    }
+
+    @Override
+    public Mono<Void> updateEmail(String uid, String email) {
+        return updates.submit(uid, new Change(email, null, null));
+    }
+
+    @Override
+    public Mono<Void> updatePassword(String uid, String password) {
+        return updates.submit(uid, new Change(null, password, null));
+    }
+
+    @Override
+    public Mono<Void> deleteUser(String uid) {
+        return call("deleteUser", timeout, () -> {
+            FirebaseAuth.getInstance().deleteUser(uid);
+            return uid;
+        }).then();
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> deleteUsers(List<String> uids) {
+        return call("deleteUsers", batchTimeout, () -> errors(FirebaseAuth.getInstance().deleteUsers(uids).getErrors()));
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> importUsers(List<IdentityImport> users) {
+        List<ImportUserRecord> records = new ArrayList<>(users.size());
+        for (IdentityImport user : users) {
+            records.add(ImportUserRecord.builder()
+                    .setUid(user.uid())
+                    .setEmail(user.email())
+                    .setEmailVerified(false)
+                    .setDisabled(false)
+                    .setPasswordHash(user.bcryptPasswordHash().getBytes(StandardCharsets.UTF_8))
+                    .putCustomClaim("role", user.role())
+                    .build());
+        }
+        return call("importUsers", batchTimeout, () -> errors(FirebaseAuth.getInstance()
+                .importUsers(records, UserImportOptions.withHash(Bcrypt.getInstance())).getErrors()));
+    }
+
+    /**
+     * Un solo {@code updateUser} con los cambios acumulados para el UID; a igualdad de campo gana el último.
+     */
+    private Mono<Map<Integer, String>> update(String uid, List<Change> changes) {
+        UserRecord.UpdateRequest request = new UserRecord.UpdateRequest(uid);
+        String email = null;
+        String password = null;
+        String role = null;
+        for (Change change : changes) {
+            if (change.email() != null) email = change.email();
+            if (change.password() != null) password = change.password();
+            if (change.role() != null) role = change.role();
+        }
+        if (email != null) request.setEmail(email);
+        if (password != null) request.setPassword(password);
+        if (role != null) request.setCustomClaims(Map.of("role", role));
+        return call("updateUser", timeout, () -> {
+            FirebaseAuth.getInstance().updateUser(request);
+            return Map.of();
+        });
+    }
+
+    /**
+     * El timeout solo deja de esperar: el permiso del bulkhead sigue ocupado hasta que el SDK responde,
+     * así que un Firebase lento acaba rechazando llamadas nuevas en lugar de acumularlas.
+     */
+    private <T> Mono<T> call(String operation, Duration limit, Callable<T> call) {
+        return firebaseCallExecutor.call(operation, call)
+                .timeout(limit, Mono.error(() -> new IllegalStateException(
+                        "❌ Firebase no respondió a " + operation + " en " + limit.toMillis() + " ms")));
+    }
+
+    private static Map<Integer, String> errors(List<ErrorInfo> errors) {
+        return errors.stream().collect(Collectors.toMap(ErrorInfo::getIndex, ErrorInfo::getReason, (a, b) -> a));
+    }
+
+    private record Change(String email, String password, String role) {
+    }
+}
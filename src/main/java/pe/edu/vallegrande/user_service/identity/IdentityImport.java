@@ -0,0 +1,7 @@
+package pe.edu.vallegrande.user_service.identity;
+
+/**
+ * Cuenta a importar: UID asignado por el servicio, email, hash BCrypt de la contraseña y rol principal.
+ */
+public record IdentityImport(String uid, String email, String bcryptPasswordHash, String role) {
+}
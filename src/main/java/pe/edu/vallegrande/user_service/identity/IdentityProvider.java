@@ -0,0 +1,47 @@
+package pe.edu.vallegrande.user_service.identity;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Proveedor de identidades (cuentas de inicio de sesión) detrás de los usuarios de la base de datos.
+ * Los servicios dependen solo de esta interfaz: la implementación por defecto es Firebase Auth
+ * ({@link FirebaseIdentityProvider}) y con {@code identity.provider=in-memory} se usa
+ * {@link InMemoryIdentityProvider} para pruebas y benchmarks.
+ * Las operaciones por lotes devuelven los errores por posición en la lista recibida; un error en la
+ * llamada completa se propaga como error del {@code Mono}.
+ */
+public interface IdentityProvider {
+
+    /**
+     * Crea la cuenta y devuelve su UID.
+     */
+    Mono<String> createUser(String email, String password);
+
+    /**
+     * Fija el claim {@code role} del token (reemplaza los claims existentes).
+     */
+    Mono<Void> setRole(String uid, String role);
+
+    Mono<Void> updateEmail(String uid, String email);
+
+    Mono<Void> updatePassword(String uid, String password);
+
+    /**
+     * Elimina la cuenta; falla con USER_NOT_FOUND si no existe.
+     */
+    Mono<Void> deleteUser(String uid);
+
+    /**
+     * Elimina varias cuentas (API por lotes, para operaciones masivas); las que no existen cuentan como eliminadas.
+     */
+    Mono<Map<Integer, String>> deleteUsers(List<String> uids);
+
+    /**
+     * Crea o sobrescribe (por UID) cuentas con hash BCrypt y rol ya calculados. No comprueba que el email sea
+     * único (Firebase tampoco lo hace al importar): quien llama debe haberlo comprobado en la base de datos.
+     */
+    Mono<Map<Integer, String>> importUsers(List<IdentityImport> users);
+}
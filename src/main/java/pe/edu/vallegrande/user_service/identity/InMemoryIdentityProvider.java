@@ -0,0 +1,140 @@
+package pe.edu.vallegrande.user_service.identity;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link IdentityProvider} en memoria para pruebas, benchmarks y el arnés de carga: mismas reglas que
+ * Firebase (email único salvo en importUsers, UID inexistente como error salvo en los borrados por lote)
+ * sin red ni SDK.
+ * Con {@code latency} cada llamada tarda lo indicado, para separar el coste del proveedor del resto
+ * del servicio al medir.
+ */
+public class InMemoryIdentityProvider implements IdentityProvider {
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, String> uidsByEmail = new ConcurrentHashMap<>();
+    private final Duration latency;
+
+    public InMemoryIdentityProvider(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Registra una cuenta ya existente (usuarios sembrados directamente en la base de datos).
+     */
+    public void register(String uid, String email, String role) {
+        store(uid, new Account(email, null, role));
+    }
+
+    @Override
+    public Mono<String> createUser(String email, String password) {
+        return delayed(() -> {
+            String uid = UUID.randomUUID().toString().replace("-", "");
+            if (uidsByEmail.putIfAbsent(email, uid) != null) {
+                throw new IllegalArgumentException("EMAIL_EXISTS");
+            }
+            accounts.put(uid, new Account(email, password, null));
+            return uid;
+        });
+    }
+
+    @Override
+    public Mono<Void> setRole(String uid, String role) {
+        return update(uid, account -> new Account(account.email(), account.password(), role));
+    }
+
+    @Override
+    public Mono<Void> updateEmail(String uid, String email) {
+        return delayed(() -> {
+            Account account = existing(uid);
+            String owner = uidsByEmail.putIfAbsent(email, uid);
+            if (owner != null && !owner.equals(uid)) {
+                throw new IllegalArgumentException("EMAIL_EXISTS");
+            }
+            store(uid, new Account(email, account.password(), account.role()));
+            return uid;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> updatePassword(String uid, String password) {
+        return update(uid, account -> new Account(account.email(), password, account.role()));
+    }
+
+    @Override
+    public Mono<Void> deleteUser(String uid) {
+        return delayed(() -> {
+            if (!remove(uid)) throw new IllegalArgumentException("USER_NOT_FOUND");
+            return uid;
+        }).then();
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> deleteUsers(List<String> uids) {
+        return delayed(() -> {
+            uids.forEach(this::remove);
+            return Map.of();
+        });
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> importUsers(List<IdentityImport> users) {
+        return delayed(() -> {
+            // Como Firebase, la importación no comprueba que el email sea único: lo hace quien importa
+            for (IdentityImport user : users) {
+                store(user.uid(), new Account(user.email(), user.bcryptPasswordHash(), user.role()));
+            }
+            return Map.<Integer, String>of();
+        });
+    }
+
+    private Mono<Void> update(String uid, UnaryOperator<Account> change) {
+        return delayed(() -> {
+            accounts.compute(uid, (key, account) -> {
+                if (account == null) throw new IllegalArgumentException("USER_NOT_FOUND");
+                return change.apply(account);
+            });
+            return uid;
+        }).then();
+    }
+
+    private Account existing(String uid) {
+        Account account = accounts.get(uid);
+        if (account == null) throw new IllegalArgumentException("USER_NOT_FOUND");
+        return account;
+    }
+
+    private void store(String uid, Account account) {
+        Account previous = accounts.put(uid, account);
+        if (previous != null && previous.email() != null && !previous.email().equals(account.email())) {
+            uidsByEmail.remove(previous.email(), uid);
+        }
+        if (account.email() != null) uidsByEmail.put(account.email(), uid);
+    }
+
+    private boolean remove(String uid) {
+        Account removed = accounts.remove(uid);
+        if (removed == null) return false;
+        if (removed.email() != null) uidsByEmail.remove(removed.email(), uid);
+        return true;
+    }
+
+    private <T> Mono<T> delayed(Callable<T> operation) {
+        Mono<T> result = Mono.fromCallable(operation);
+        return latency.isZero() ? result : Mono.delay(latency).then(result);
+    }
+
+    /**
+     * Estado de una cuenta; {@code password} es la contraseña o el hash importado.
+     */
+    private record Account(String email, String password, String role) {
+    }
+}
@@ -0,0 +1,53 @@
+package pe.edu.vallegrande.user_service.model;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Variantes de la imagen de perfil generadas al subirla.
+ * Las imágenes procesadas se guardan como {@code <carpeta>/<sha256>/original.<ext>} y sus variantes
+ * junto a ella ({@code thumbnail.jpg}, {@code medium.jpg}); las URLs antiguas o sin variantes
+ * se devuelven tal cual.
+ */
+public enum ImageVariant {
+    ORIGINAL(null, 0),
+    MEDIUM("medium.jpg", 512),
+    THUMBNAIL("thumbnail.jpg", 128);
+
+    private static final Pattern ORIGINAL_URL = Pattern.compile("^(.*/[0-9a-f]{64}/)original\\.[A-Za-z0-9]+$");
+
+    private final String objectName;
+    private final int maxSize;
+
+    ImageVariant(String objectName, int maxSize) {
+        this.objectName = objectName;
+        this.maxSize = maxSize;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Lado máximo en píxeles de la variante (0 para la original).
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Devuelve la URL de esta variante a partir de la URL de la imagen original.
+     */
+    public String resolve(String originalUrl) {
+        if (originalUrl == null || this == ORIGINAL) return originalUrl;
+        Matcher matcher = ORIGINAL_URL.matcher(originalUrl);
+        return matcher.matches() ? matcher.group(1) + objectName : originalUrl;
+    }
+
+    /**
+     * Indica si la URL apunta a un objeto direccionado por contenido (puede estar compartido entre usuarios).
+     */
+    public static boolean isContentAddressed(String url) {
+        return url != null && ORIGINAL_URL.matcher(url).matches();
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -36,4 +37,17 @@ public class User {
     private List<String> role;
     @Column("profile_image")
     private String profileImage;
+    @Column("status")
+    private UserStatus status;
+    // Concurrencia optimista: save() falla si otra escritura la cambió entre la lectura y el UPDATE
+    @Version
+    @Column("version")
+    private Long version;
+
+    /**
+     * URL de la variante solicitada de la imagen de perfil (miniatura, mediana u original).
+     */
+    public String getProfileImage(ImageVariant variant) {
+        return variant.resolve(profileImage);
+    }
 }
@@ -0,0 +1,48 @@
+package pe.edu.vallegrande.user_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Registro del outbox de aprovisionamiento: lo que falta para completar un usuario {@link UserStatus#PENDING}.
+ * Se escribe en la misma transacción que la fila de {@code users} y se elimina al completarse.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("user_provisioning_outbox")
+public class UserProvisioningTask {
+    @Id
+    private Long id;
+    @Column("user_id")
+    private Integer userId;
+    // Hash BCrypt para importUsers (Firebase no admite Argon2); la contraseña en claro nunca se guarda.
+    // Null en los registros FAILED: se borra al agotar los reintentos
+    @Column("firebase_password_hash")
+    private String firebasePasswordHash;
+    @Column("image")
+    private byte[] image;
+    @Column("image_content_type")
+    private String imageContentType;
+    // Solo en lecturas sin la imagen (UserProvisioningOutboxRepository.METADATA_COLUMNS)
+    @ReadOnlyProperty
+    @Column("has_image")
+    private Boolean hasImage;
+    @Column("attempts")
+    private Integer attempts;
+    @Column("next_attempt_at")
+    private Instant nextAttemptAt;
+    @Column("last_error")
+    private String lastError;
+    @Column("failed_at")
+    private Instant failedAt;
+    @Column("created_at")
+    private Instant createdAt;
+}
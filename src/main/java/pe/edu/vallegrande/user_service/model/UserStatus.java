@@ -0,0 +1,13 @@
+package pe.edu.vallegrande.user_service.model;
+
+/**
+ * Estado de aprovisionamiento de la cuenta (columna {@code users.status}).
+ */
+public enum UserStatus {
+    // Fila creada; la cuenta de Firebase y la imagen están pendientes en el outbox
+    PENDING,
+    // Cuenta completa en Firebase, Supabase y la base de datos
+    ACTIVE,
+    // Se agotaron los reintentos; la cuenta de Firebase se eliminó
+    FAILED
+}
@@ -0,0 +1,9 @@
+package pe.edu.vallegrande.user_service.repository;
+
+import pe.edu.vallegrande.user_service.model.User;
+
+/**
+ * Resultado de búsqueda: el usuario y su distancia al texto buscado (0 = coincidencia completa, 1 = ninguna).
+ */
+public record SearchHit(User user, float distance) {
+}
@@ -0,0 +1,42 @@
+package pe.edu.vallegrande.user_service.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import pe.edu.vallegrande.user_service.model.UserProvisioningTask;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface UserProvisioningOutboxRepository extends ReactiveCrudRepository<UserProvisioningTask, Long> {
+
+    // Todo menos la imagen (hasta 10 MB por registro): se lee aparte con findImageById al procesar cada registro
+    String METADATA_COLUMNS = "id, user_id, firebase_password_hash, image_content_type, image IS NOT NULL AS has_image,"
+            + " attempts, next_attempt_at, last_error, failed_at, created_at";
+
+    @Query("SELECT " + METADATA_COLUMNS + " FROM user_provisioning_outbox WHERE user_id = :userId")
+    Mono<UserProvisioningTask> findByUserId(Integer userId);
+
+    @Query("SELECT id, image, image_content_type FROM user_provisioning_outbox WHERE id = :id")
+    Mono<UserProvisioningTask> findImageById(Long id);
+
+    // Reclama hasta :limit registros vencidos: SKIP LOCKED evita que dos workers tomen el mismo y el
+    // lease (next_attempt_at en el futuro) lo oculta hasta que se complete, se reprograme o caduque
+    @Query("UPDATE user_provisioning_outbox SET attempts = attempts + 1,"
+            + " next_attempt_at = now() + :leaseMillis * interval '1 millisecond'"
+            + " WHERE id IN (SELECT id FROM user_provisioning_outbox WHERE failed_at IS NULL AND next_attempt_at <= now()"
+            + " ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED)"
+            + " RETURNING " + METADATA_COLUMNS)
+    Flux<UserProvisioningTask> claimDue(int limit, long leaseMillis);
+
+    @Modifying
+    @Query("UPDATE user_provisioning_outbox SET last_error = :error,"
+            + " next_attempt_at = now() + :delayMillis * interval '1 millisecond' WHERE id = :id")
+    Mono<Integer> reschedule(Long id, String error, long delayMillis);
+
+    // Sin más reintentos: se conserva el registro para consultar el error, sin la imagen ni el hash de la contraseña
+    @Modifying
+    @Query("UPDATE user_provisioning_outbox SET last_error = :error, failed_at = now(), image = NULL,"
+            + " firebase_password_hash = NULL WHERE id = :id")
+    Mono<Integer> markFailed(Long id, String error);
+
+}
@@ -1,13 +1,40 @@
 package pe.edu.vallegrande.user_service.repository;
 
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import pe.edu.vallegrande.user_service.model.User;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface UsersRepository extends ReactiveCrudRepository<User, Integer> {
+public interface UsersRepository extends ReactiveCrudRepository<User, Integer>, UsersRepositoryCustom {
+
+    // Columnas de UserField.ALL_COLUMNS para los RETURNING de las actualizaciones (nunca password)
+    String RETURNING_COLUMNS = " RETURNING id, firebase_uid, name, last_name, document_type, document_number, cell_phone,"
+            + " email, role, profile_image, status, version";
 
     // Método para buscar un usuario por su correo electrónico
     Mono<User> findByEmail(String email);
+
+    // Búsqueda por UID de Firebase (índice único ux_users_firebase_uid)
     Mono<User> findByFirebaseUid(String firebaseUid);
 
+    // Operaciones por lote: una sola sentencia para todos los IDs
+    @Modifying
+    @Query("DELETE FROM users WHERE id = ANY(:ids)")
+    Mono<Integer> deleteByIdIn(Integer[] ids);
+
+    // Devuelve las filas actualizadas tal como quedaron (versión incluida); falta la de un usuario borrado entretanto
+    @Query("UPDATE users SET role = :role, version = version + 1 WHERE id = ANY(:ids)" + RETURNING_COLUMNS)
+    Flux<User> updateRoleByIdIn(Integer[] ids, String[] role);
+
+    // Aprovisionamiento asíncrono: estado (y URL de la imagen al completarse). Devuelven la fila tal como
+    // quedó, para publicarla y cachearla sin reutilizar campos leídos antes; vacío si el usuario ya no existe
+    @Query("UPDATE users SET status = 'ACTIVE', profile_image = :profileImage, version = version + 1 WHERE id = :id"
+            + RETURNING_COLUMNS)
+    Mono<User> activate(Integer id, String profileImage);
+
+    @Query("UPDATE users SET status = :status, version = version + 1 WHERE id = :id" + RETURNING_COLUMNS)
+    Mono<User> updateStatus(Integer id, String status);
+
 }
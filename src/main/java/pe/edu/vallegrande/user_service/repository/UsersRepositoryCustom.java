@@ -0,0 +1,67 @@
+package pe.edu.vallegrande.user_service.repository;
+
+import pe.edu.vallegrande.user_service.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas de {@link UsersRepository} que necesitan control sobre el statement (fetch size, SQL dinámico...).
+ */
+public interface UsersRepositoryCustom {
+
+    /**
+     * Recorre toda la tabla ordenada por ID leyendo las filas por lotes (fetch size),
+     * de modo que el consumidor controla el ritmo con su demanda (backpressure).
+     * Solo se seleccionan las columnas indicadas; las demás propiedades quedan en null.
+     */
+    Flux<User> streamAllOrderById(List<String> columns);
+
+    /**
+     * Paginación keyset: siguiente página a partir del último ID visto (usa la PK, sin OFFSET).
+     */
+    Flux<User> findPageAfter(int afterId, int limit, List<String> columns);
+
+    Mono<User> findById(Integer id, List<String> columns);
+
+    /**
+     * Usuarios con los IDs indicados en una sola consulta ({@code = ANY}), sin orden garantizado.
+     */
+    Flux<User> findAllById(Collection<Integer> ids, List<String> columns);
+
+    Mono<User> findByFirebaseUid(String firebaseUid, List<String> columns);
+
+    Mono<User> findByEmail(String email, List<String> columns);
+
+    /**
+     * Recorre solo la columna email de toda la tabla, por lotes (fetch size).
+     */
+    Flux<String> streamAllEmails();
+
+    /**
+     * Búsqueda por prefijo y aproximada (trigramas) sobre nombre, apellidos, email y documento, ordenada
+     * por distancia al texto y luego por ID. {@code term} debe venir normalizado (minúsculas, palabras
+     * separadas por un espacio). El cursor {@code (afterDistance, afterId)} es la última fila de la página
+     * anterior; null para la primera.
+     */
+    Flux<SearchHit> search(String term, Float afterDistance, Integer afterId, int limit, List<String> columns);
+
+    /**
+     * Devuelve cuáles de los emails indicados ya están registrados (una sola consulta con {@code = ANY}).
+     */
+    Flux<String> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Primer usuario (menor ID) registrado con cada uno de los emails indicados, en una sola consulta.
+     */
+    Mono<Map<String, Integer>> findEmailOwners(Collection<String> emails);
+
+    /**
+     * Inserta todos los usuarios con un único {@code INSERT} multi-fila y los devuelve con su ID, estado y
+     * versión asignados por la base, en cualquier orden. Cada usuario debe tener un {@code firebaseUid} distinto.
+     */
+    Flux<User> insertAll(List<User> users);
+}
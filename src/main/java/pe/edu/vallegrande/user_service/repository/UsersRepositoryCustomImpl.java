@@ -0,0 +1,209 @@
+package pe.edu.vallegrande.user_service.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.model.UserStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class UsersRepositoryCustomImpl implements UsersRepositoryCustom {
+
+    // Columnas escritas por insertAll, en el orden de los parámetros de cada fila
+    private static final String[] INSERT_COLUMNS = {
+            "firebase_uid", "name", "last_name", "document_type", "document_number",
+            "cell_phone", "email", "password", "role", "profile_image"
+    };
+
+    // Texto de búsqueda: debe coincidir con la expresión indexada en V3__users_search_trgm_indexes
+    private static final String SEARCH_TEXT = "lower(coalesce(name, '') || ' ' || coalesce(last_name, '') || ' '"
+            + " || coalesce(email, '') || ' ' || coalesce(document_number, ''))";
+    private static final String SEARCH_DISTANCE = "(:term <<-> " + SEARCH_TEXT + ")";
+
+    private final R2dbcEntityTemplate template;
+    private final int streamFetchSize;
+
+    UsersRepositoryCustomImpl(R2dbcEntityTemplate template,
+                              @Value("${users.stream.fetch-size:500}") int streamFetchSize) {
+        this.template = template;
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    @Override
+    public Flux<User> streamAllOrderById(List<String> columns) {
+        return read(select(columns, " ORDER BY id")
+                .filter(statement -> statement.fetchSize(streamFetchSize)));
+    }
+
+    @Override
+    public Flux<User> findPageAfter(int afterId, int limit, List<String> columns) {
+        return read(select(columns, " WHERE id > :afterId ORDER BY id LIMIT :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit));
+    }
+
+    @Override
+    public Mono<User> findById(Integer id, List<String> columns) {
+        return read(select(columns, " WHERE id = :id").bind("id", id)).next();
+    }
+
+    @Override
+    public Flux<User> findAllById(Collection<Integer> ids, List<String> columns) {
+        if (ids.isEmpty()) return Flux.empty();
+        return read(select(columns, " WHERE id = ANY(:ids)").bind("ids", ids.toArray(Integer[]::new)));
+    }
+
+    @Override
+    public Mono<User> findByFirebaseUid(String firebaseUid, List<String> columns) {
+        return read(select(columns, " WHERE firebase_uid = :uid").bind("uid", firebaseUid)).next();
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email, List<String> columns) {
+        return read(select(columns, " WHERE email = :email").bind("email", email)).next();
+    }
+
+    @Override
+    public Flux<SearchHit> search(String term, Float afterDistance, Integer afterId, int limit, List<String> columns) {
+        // Cada palabra debe aparecer (por prefijo o aproximada); el orden es por la distancia al texto completo.
+        // ORDER BY usa los operadores de distancia de las dos columnas del índice GiST, que devuelve las filas
+        // ya ordenadas: el coste depende del tamaño de la página, no del número de coincidencias.
+        String[] words = term.split("\\s+");
+        StringBuilder where = new StringBuilder(" WHERE ");
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) where.append(" AND ");
+            where.append(":word").append(i).append(" <% ").append(SEARCH_TEXT);
+        }
+        if (afterDistance != null) {
+            where.append(" AND (").append(SEARCH_DISTANCE).append(" > :afterDistance OR (")
+                    .append(SEARCH_DISTANCE).append(" = :afterDistance AND id > :afterId))");
+        }
+        String sql = "SELECT " + String.join(", ", columns) + ", " + SEARCH_DISTANCE + " AS distance FROM users"
+                + where + " ORDER BY " + SEARCH_DISTANCE + ", (id)::float8 <-> 0::float8 LIMIT :limit";
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql)
+                .bind("term", term)
+                .bind("limit", limit);
+        for (int i = 0; i < words.length; i++) {
+            spec = spec.bind("word" + i, words[i]);
+        }
+        if (afterDistance != null) {
+            spec = spec.bind("afterDistance", afterDistance).bind("afterId", afterId);
+        }
+        return spec.map((row, metadata) -> new SearchHit(
+                        template.getConverter().read(User.class, row, metadata),
+                        row.get("distance", Float.class)))
+                .all();
+    }
+
+    @Override
+    public Flux<String> streamAllEmails() {
+        return template.getDatabaseClient()
+                .sql("SELECT email FROM users WHERE email IS NOT NULL")
+                .filter(statement -> statement.fetchSize(streamFetchSize))
+                .map(row -> row.get("email", String.class))
+                .all();
+    }
+
+    @Override
+    public Flux<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) return Flux.empty();
+        return template.getDatabaseClient()
+                .sql("SELECT email FROM users WHERE email = ANY(:emails)")
+                .bind("emails", emails.toArray(String[]::new))
+                .map(row -> row.get("email", String.class))
+                .all();
+    }
+
+    @Override
+    public Mono<Map<String, Integer>> findEmailOwners(Collection<String> emails) {
+        if (emails.isEmpty()) return Mono.just(Map.of());
+        return template.getDatabaseClient()
+                .sql("SELECT email, min(id) AS id FROM users WHERE email = ANY(:emails) GROUP BY email")
+                .bind("emails", emails.toArray(String[]::new))
+                .map(row -> Map.entry(row.get("email", String.class), row.get("id", Integer.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    @Override
+    public Flux<User> insertAll(List<User> users) {
+        if (users.isEmpty()) return Flux.empty();
+
+        StringBuilder sql = new StringBuilder("INSERT INTO users (")
+                .append(String.join(", ", INSERT_COLUMNS))
+                .append(") VALUES ");
+        int parameter = 0;
+        for (int row = 0; row < users.size(); row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column < INSERT_COLUMNS.length; column++) {
+                sql.append(column == 0 ? "" : ", ").append('$').append(++parameter);
+            }
+            sql.append(')');
+        }
+        sql.append(" RETURNING id, firebase_uid, status, version");
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString());
+        int index = 0;
+        for (User user : users) {
+            for (Object value : columnValues(user)) {
+                spec = value instanceof Class<?> type ? spec.bindNull(index++, type) : spec.bind(index++, value);
+            }
+        }
+
+        // Postgres no garantiza que RETURNING siga el orden de VALUES: cada fila se empareja con su usuario
+        // por firebase_uid (único) y recibe su ID y los valores por defecto de la tabla (estado y versión)
+        Map<String, User> pending = new HashMap<>();
+        for (User user : users) {
+            pending.put(user.getFirebaseUid(), user);
+        }
+        return spec.map(row -> {
+                    User user = pending.get(row.get("firebase_uid", String.class));
+                    user.setId(row.get("id", Integer.class));
+                    user.setStatus(UserStatus.valueOf(row.get("status", String.class)));
+                    user.setVersion(row.get("version", Long.class));
+                    return user;
+                })
+                .all();
+    }
+
+    /**
+     * SELECT de las columnas indicadas (nombres fijos de {@code UserField}, nunca entrada del cliente).
+     */
+    private DatabaseClient.GenericExecuteSpec select(List<String> columns, String clause) {
+        return template.getDatabaseClient().sql("SELECT " + String.join(", ", columns) + " FROM users" + clause);
+    }
+
+    private Flux<User> read(DatabaseClient.GenericExecuteSpec spec) {
+        // El converter deja en null las propiedades cuya columna no se seleccionó
+        return spec.map((row, metadata) -> template.getConverter().read(User.class, row, metadata)).all();
+    }
+
+    /**
+     * Valores de {@link #INSERT_COLUMNS} para el usuario; los nulos se representan por su tipo para {@code bindNull}.
+     */
+    private static Object[] columnValues(User user) {
+        return new Object[]{
+                valueOrType(user.getFirebaseUid(), String.class),
+                valueOrType(user.getName(), String.class),
+                valueOrType(user.getLastName(), String.class),
+                valueOrType(user.getDocumentType(), String.class),
+                valueOrType(user.getDocumentNumber(), String.class),
+                valueOrType(user.getCellPhone(), String.class),
+                valueOrType(user.getEmail(), String.class),
+                valueOrType(user.getPassword(), String.class),
+                user.getRole() != null ? user.getRole().toArray(String[]::new) : String[].class,
+                valueOrType(user.getProfileImage(), String.class)
+        };
+    }
+
+    private static Object valueOrType(Object value, Class<?> type) {
+        return value != null ? value : type;
+    }
+}
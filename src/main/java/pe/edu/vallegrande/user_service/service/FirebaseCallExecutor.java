@@ -0,0 +1,136 @@
+package pe.edu.vallegrande.user_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta las llamadas bloqueantes del Firebase Admin SDK fuera del event loop de Netty.
+ * Usa un pool elástico acotado (o hilos virtuales con Java 21) y un bulkhead que rechaza
+ * de inmediato cuando hay demasiadas llamadas pendientes, para que un Firebase lento
+ * no acumule trabajo indefinidamente.
+ * El permiso del bulkhead se mantiene hasta que la llamada bloqueante termina de verdad: cancelar
+ * el {@link Mono} (p. ej. por un timeout) solo deja de esperar el resultado. Una llamada cancelada
+ * antes de empezar no llega a ejecutarse.
+ */
+@Slf4j
+@Component
+public class FirebaseCallExecutor implements DisposableBean {
+
+    private static final String METRIC_PREFIX = "firebase.executor";
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+
+    private final Scheduler scheduler;
+    private final Semaphore bulkhead;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private final MeterRegistry meterRegistry;
+
+    public FirebaseCallExecutor(@Value("${firebase.executor.max-threads:16}") int maxThreads,
+                                @Value("${firebase.executor.queue-capacity:256}") int queueCapacity,
+                                @Value("${firebase.executor.max-concurrent-calls:64}") int maxConcurrentCalls,
+                                @Value("${firebase.executor.virtual-threads:false}") boolean virtualThreads,
+                                MeterRegistry meterRegistry) {
+        this.scheduler = virtualThreads
+                ? Schedulers.fromExecutorService(newVirtualThreadExecutor(), "firebase-vt")
+                : Schedulers.newBoundedElastic(maxThreads, queueCapacity, "firebase");
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder(METRIC_PREFIX + ".queued", queued, AtomicInteger::get)
+                .description("Llamadas a Firebase esperando un hilo")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".in_flight", inFlight, AtomicInteger::get)
+                .description("Llamadas a Firebase en ejecución")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Llamadas rechazadas por el bulkhead")
+                .register(meterRegistry);
+
+        log.info("Executor de Firebase: {} (bulkhead={})",
+                virtualThreads ? "hilos virtuales" : "bounded elastic threads=" + maxThreads + " queue=" + queueCapacity,
+                maxConcurrentCalls);
+    }
+
+    /**
+     * Envuelve una llamada bloqueante al SDK de Firebase en un {@link Mono} que se ejecuta
+     * en el scheduler dedicado.
+     *
+     * @param operation nombre de la operación (se usa como tag en las métricas)
+     * @param call      llamada bloqueante al SDK
+     */
+    public <T> Mono<T> call(String operation, Callable<T> call) {
+        return Mono.defer(() -> {
+            if (!bulkhead.tryAcquire()) {
+                rejected.increment();
+                return Mono.error(new IllegalStateException("❌ Demasiadas solicitudes pendientes a Firebase, intente más tarde"));
+            }
+            queued.incrementAndGet();
+            AtomicInteger state = new AtomicInteger(QUEUED);
+            Timer.Sample sample = Timer.start(meterRegistry);
+
+            return Mono.fromCallable(() -> {
+                        // Cancelada mientras esperaba un hilo: el permiso ya se liberó
+                        if (!state.compareAndSet(QUEUED, RUNNING)) return null;
+                        queued.decrementAndGet();
+                        inFlight.incrementAndGet();
+                        try {
+                            return call.call();
+                        } finally {
+                            inFlight.decrementAndGet();
+                            bulkhead.release();
+                        }
+                    })
+                    .subscribeOn(scheduler)
+                    .doOnEach(signal -> {
+                        if (signal.isOnComplete() || signal.isOnError()) {
+                            sample.stop(Timer.builder("firebase.calls")
+                                    .tag("operation", operation)
+                                    .tag("outcome", signal.isOnError() ? "error" : "success")
+                                    .register(meterRegistry));
+                        }
+                    })
+                    .doFinally(signalType -> {
+                        // Sin empezar (cancelada o rechazada por la cola del scheduler): no se ejecutará
+                        if (state.compareAndSet(QUEUED, ABANDONED)) {
+                            queued.decrementAndGet();
+                            bulkhead.release();
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} solo existe desde Java 21; se resuelve
+     * por reflexión para que el proyecto siga compilando con Java 17 (ver perfil Maven {@code java21}).
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("firebase.executor.virtual-threads requiere Java 21 o superior", e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package pe.edu.vallegrande.user_service.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user_service.model.ImageVariant;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Decodifica las imágenes de perfil y genera sus variantes redimensionadas (JPEG).
+ * El trabajo de CPU se ejecuta en un scheduler propio, nunca en el event loop.
+ */
+@Service
+public class ImageProcessingService implements DisposableBean {
+
+    private final Scheduler scheduler;
+    private final long maxPixels;
+    private final float jpegQuality;
+
+    public ImageProcessingService(@Value("${images.processing.max-pixels:40000000}") long maxPixels,
+                                  @Value("${images.processing.jpeg-quality:0.82}") float jpegQuality) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newBoundedElastic(cores, 64, "image-processing");
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Indica si el formato puede decodificarse con los lectores disponibles (JPEG, PNG, GIF, BMP...).
+     */
+    public boolean canProcess(String contentType) {
+        return contentType != null && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+
+    /**
+     * Calcula el hash de contenido y genera las variantes de la imagen.
+     */
+    public Mono<ProcessedImage> process(byte[] original) {
+        return Mono.fromCallable(() -> {
+                    BufferedImage image = decode(original);
+                    Map<ImageVariant, byte[]> variants = new EnumMap<>(ImageVariant.class);
+                    for (ImageVariant variant : ImageVariant.values()) {
+                        if (variant != ImageVariant.ORIGINAL) {
+                            variants.put(variant, encodeJpeg(resize(image, variant.getMaxSize())));
+                        }
+                    }
+                    return new ProcessedImage(sha256(original), variants);
+                })
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * SHA-256 en hexadecimal, usado como nombre del objeto para deduplicar subidas idénticas.
+     */
+    public static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BufferedImage decode(byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("❌ Formato de imagen no soportado");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Rechaza "bombas" de descompresión antes de reservar el buffer de píxeles
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new IllegalArgumentException("❌ La imagen supera la resolución máxima permitida");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // Siempre RGB: JPEG no admite canal alfa
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * Resultado del procesamiento: hash del contenido original y bytes JPEG de cada variante.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class ProcessedImage {
+        private final String contentHash;
+        private final Map<ImageVariant, byte[]> variants;
+    }
+}
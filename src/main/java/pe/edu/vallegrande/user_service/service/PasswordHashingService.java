@@ -0,0 +1,157 @@
+package pe.edu.vallegrande.user_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Hash de contraseñas fuera del event loop, en un pool de CPU del tamaño de los núcleos.
+ * El algoritmo (BCrypt o Argon2) y su coste son configurables; con {@code security.password.calibrate=true}
+ * el coste se ajusta al arrancar para acercarse a {@code security.password.target-latency}, sin bajar
+ * nunca del coste configurado.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService implements DisposableBean {
+
+    private static final int BCRYPT_MAX_STRENGTH = 16;
+    private static final int ARGON2_MAX_ITERATIONS = 20;
+    private static final int CALIBRATION_SAMPLES = 3;
+
+    private final Scheduler scheduler;
+    private final String algorithm;
+    private final PasswordEncoder encoder;
+    private final PasswordEncoder bcryptEncoder;
+    private final Timer hashTimer;
+    private final Timer bcryptTimer;
+
+    public PasswordHashingService(@Value("${security.password.algorithm:bcrypt}") String algorithm,
+                                  @Value("${security.password.bcrypt.strength:10}") int bcryptStrength,
+                                  @Value("${security.password.argon2.memory-kb:19456}") int argon2MemoryKb,
+                                  @Value("${security.password.argon2.iterations:2}") int argon2Iterations,
+                                  @Value("${security.password.argon2.parallelism:1}") int argon2Parallelism,
+                                  @Value("${security.password.calibrate:false}") boolean calibrate,
+                                  @Value("${security.password.target-latency:250ms}") Duration targetLatency,
+                                  MeterRegistry meterRegistry) {
+        this.scheduler = Schedulers.newParallel("password-hash", Runtime.getRuntime().availableProcessors());
+        this.algorithm = algorithm.toLowerCase(Locale.ROOT);
+
+        switch (this.algorithm) {
+            case "bcrypt" -> {
+                int strength = calibrate ? calibrateBcrypt(bcryptStrength, targetLatency) : bcryptStrength;
+                this.encoder = new BCryptPasswordEncoder(strength);
+                this.bcryptEncoder = encoder;
+                log.info("Hash de contraseñas: BCrypt strength={}", strength);
+            }
+            case "argon2" -> {
+                int iterations = calibrate
+                        ? calibrateArgon2(argon2MemoryKb, argon2Iterations, argon2Parallelism, targetLatency)
+                        : argon2Iterations;
+                this.encoder = argon2(argon2MemoryKb, iterations, argon2Parallelism);
+                this.bcryptEncoder = new BCryptPasswordEncoder(bcryptStrength);
+                log.info("Hash de contraseñas: Argon2id memory={}KB iterations={} parallelism={}",
+                        argon2MemoryKb, iterations, argon2Parallelism);
+            }
+            default -> throw new IllegalArgumentException("security.password.algorithm no soportado: " + algorithm);
+        }
+
+        this.hashTimer = hashTimer(this.algorithm, meterRegistry);
+        this.bcryptTimer = usesBcrypt() ? hashTimer : hashTimer("bcrypt", meterRegistry);
+    }
+
+    /**
+     * Calcula el hash de la contraseña con el algoritmo configurado.
+     */
+    public Mono<String> encode(CharSequence rawPassword) {
+        return hash(encoder, hashTimer, rawPassword);
+    }
+
+    /**
+     * Hash BCrypt, necesario para importar cuentas en Firebase (no admite Argon2).
+     * Si el algoritmo configurado ya es BCrypt, coincide con {@link #encode(CharSequence)}.
+     */
+    public Mono<String> encodeBcrypt(CharSequence rawPassword) {
+        return hash(bcryptEncoder, bcryptTimer, rawPassword);
+    }
+
+    public boolean usesBcrypt() {
+        return encoder == bcryptEncoder;
+    }
+
+    private Mono<String> hash(PasswordEncoder passwordEncoder, Timer timer, CharSequence rawPassword) {
+        return Mono.fromCallable(() -> timer.recordCallable(() -> passwordEncoder.encode(rawPassword)))
+                .subscribeOn(scheduler);
+    }
+
+    private static Timer hashTimer(String algorithm, MeterRegistry meterRegistry) {
+        return Timer.builder("password.hash")
+                .description("Latencia del hash de contraseñas")
+                .tag("algorithm", algorithm)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cada punto de strength duplica el coste de BCrypt: se mide el coste configurado y se sube
+     * mientras la siguiente duplicación siga dentro de la latencia objetivo.
+     */
+    private static int calibrateBcrypt(int minStrength, Duration target) {
+        int strength = minStrength;
+        long nanos = measure(new BCryptPasswordEncoder(strength));
+        while (strength < BCRYPT_MAX_STRENGTH && nanos * 2 <= target.toNanos()) {
+            strength++;
+            nanos = measure(new BCryptPasswordEncoder(strength));
+        }
+        log.info("Calibración BCrypt: strength={} ({} ms por hash, objetivo {} ms)",
+                strength, nanos / 1_000_000, target.toMillis());
+        return strength;
+    }
+
+    /**
+     * Con la memoria fija, el coste de Argon2 crece linealmente con las iteraciones.
+     */
+    private static int calibrateArgon2(int memoryKb, int minIterations, int parallelism, Duration target) {
+        long perIteration = measure(argon2(memoryKb, 1, parallelism));
+        int iterations = (int) Math.max(minIterations, Math.min(ARGON2_MAX_ITERATIONS, target.toNanos() / Math.max(1, perIteration)));
+        log.info("Calibración Argon2: iterations={} ({} ms por iteración, objetivo {} ms)",
+                iterations, perIteration / 1_000_000, target.toMillis());
+        return iterations;
+    }
+
+    private static Argon2PasswordEncoder argon2(int memoryKb, int iterations, int parallelism) {
+        return new Argon2PasswordEncoder(16, 32, parallelism, memoryKb, iterations);
+    }
+
+    /**
+     * Mediana de varias ejecuciones (tras un calentamiento) en nanosegundos.
+     */
+    private static long measure(PasswordEncoder passwordEncoder) {
+        passwordEncoder.encode("calibration-warmup");
+        long[] samples = new long[CALIBRATION_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            passwordEncoder.encode("calibration-" + i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,76 @@
+package pe.edu.vallegrande.user_service.service;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Observaciones de Micrometer por operación de usuario y por cada etapa dentro de ella
+ * (consulta, Firebase, Supabase, hash, guardado...). Cada observación genera un timer
+ * etiquetado con {@code pipeline}, {@code stage} y {@code outcome}, y un span si hay un
+ * puente de tracing configurado; las etapas cuelgan de la operación y esta de la petición HTTP.
+ */
+@Component
+public class PipelineObserver {
+
+    static final String PIPELINE_METRIC = "users.pipeline";
+    static final String STAGE_METRIC = "users.pipeline.stage";
+
+    private static final String PIPELINE_KEY = PipelineObserver.class.getName() + ".pipeline";
+
+    private final ObservationRegistry observationRegistry;
+
+    public PipelineObserver(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Observa la operación completa; las etapas ejecutadas dentro de {@code body} quedan asociadas a ella.
+     */
+    public <T> Mono<T> pipeline(String pipeline, Mono<T> body) {
+        return Mono.deferContextual(context -> {
+            Observation observation = Observation.createNotStarted(PIPELINE_METRIC, observationRegistry)
+                    .contextualName("users " + pipeline)
+                    .lowCardinalityKeyValue("pipeline", pipeline)
+                    .parentObservation(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            return observe(observation, body)
+                    .contextWrite(inner -> inner.put(PIPELINE_KEY, pipeline));
+        });
+    }
+
+    /**
+     * Observa una etapa de la operación en curso.
+     */
+    public <T> Mono<T> stage(String stage, Mono<T> body) {
+        return Mono.deferContextual(context -> {
+            String pipeline = context.getOrDefault(PIPELINE_KEY, "none");
+            Observation observation = Observation.createNotStarted(STAGE_METRIC, observationRegistry)
+                    .contextualName(pipeline + " " + stage)
+                    .lowCardinalityKeyValue("pipeline", pipeline)
+                    .lowCardinalityKeyValue("stage", stage)
+                    .parentObservation(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null));
+            return observe(observation, body);
+        });
+    }
+
+    private static <T> Mono<T> observe(Observation observation, Mono<T> body) {
+        return Mono.defer(() -> {
+                    observation.start();
+                    return body
+                            .doOnSuccess(value -> stop(observation, "success"))
+                            .doOnError(error -> {
+                                observation.error(error);
+                                stop(observation, "error");
+                            })
+                            .doOnCancel(() -> stop(observation, "cancelled"));
+                })
+                .contextWrite(context -> context.put(ObservationThreadLocalAccessor.KEY, observation));
+    }
+
+    private static void stop(Observation observation, String outcome) {
+        observation.lowCardinalityKeyValue(KeyValue.of("outcome", outcome)).stop();
+    }
+}
@@ -1,70 +1,219 @@
 package pe.edu.vallegrande.user_service.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.core.io.buffer.DataBufferUtils;
+import pe.edu.vallegrande.user_service.model.ImageVariant;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SupabaseStorageService {
 
-    @Value("${supabase.project-url}")
-    private String supabaseUrl;
+    private final String supabaseUrl;
+    private final String supabaseBucket;
+    private final String supabaseFolder;
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary uploadBytes;
+    private final ImageProcessingService imageProcessingService;
+    private final int maxImageBytes;
 
-    @Value("${supabase.api-key}")
-    private String supabaseApiKey;
+    public SupabaseStorageService(WebClient.Builder webClientBuilder,
+                                  MeterRegistry meterRegistry,
+                                  ImageProcessingService imageProcessingService,
+                                  @Value("${supabase.project-url}") String supabaseUrl,
+                                  @Value("${supabase.api-key}") String supabaseApiKey,
+                                  @Value("${supabase.bucket}") String supabaseBucket,
+                                  @Value("${supabase.folder}") String supabaseFolder,
+                                  @Value("${supabase.http.max-connections:50}") int maxConnections,
+                                  @Value("${supabase.http.max-idle-time:30s}") Duration maxIdleTime,
+                                  @Value("${images.processing.max-size:10MB}") DataSize maxImageSize) {
+        this.supabaseUrl = supabaseUrl;
+        this.imageProcessingService = imageProcessingService;
+        this.maxImageBytes = (int) maxImageSize.toBytes();
+        this.supabaseBucket = supabaseBucket;
+        this.supabaseFolder = supabaseFolder;
+        this.meterRegistry = meterRegistry;
 
-    @Value("${supabase.bucket}")
-    private String supabaseBucket;
+        // Un único cliente con pool de conexiones keep-alive, compartido por todas las subidas
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("supabase")
+                .maxConnections(maxConnections)
+                .maxIdleTime(maxIdleTime)
+                .metrics(true)
+                .build();
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .baseUrl(supabaseUrl + "/storage/v1/object")
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + supabaseApiKey)
+                .build();
 
-    @Value("${supabase.folder}")
-    private String supabaseFolder;
+        this.uploadBytes = DistributionSummary.builder("supabase.upload.bytes")
+                .description("Tamaño de cada archivo subido a Supabase")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
 
     /**
-     * Sube una imagen al bucket Supabase y devuelve la URL pública
+     * Sube una imagen al bucket Supabase y devuelve la URL pública.
+     * El contenido se reenvía por streaming (chunked) a medida que llega, sin unir el archivo en memoria.
      */
     public Mono<String> uploadImage(FilePart filePart) {
         String fileName = UUID.randomUUID() + "_" + filePart.filename();
         String filePath = supabaseFolder + "/" + fileName;
+        MediaType contentType = filePart.headers().getContentType() != null
+                ? filePart.headers().getContentType()
+                : MediaType.APPLICATION_OCTET_STREAM;
+
+        return putObject(filePath, contentType, filePart.content());
+    }
+
+    /**
+     * Sube una imagen de perfil: genera miniatura y tamaño medio y guarda todo bajo el hash SHA-256
+     * del contenido, de modo que una imagen idéntica se almacena una sola vez.
+     * Los formatos que no se pueden decodificar se suben tal cual con {@link #uploadImage(FilePart)}.
+     * Devuelve la URL pública de la original; las variantes se obtienen con {@link ImageVariant#resolve(String)}.
+     */
+    public Mono<String> uploadProfileImage(FilePart filePart) {
+        MediaType contentType = filePart.headers().getContentType();
+        if (contentType == null || !imageProcessingService.canProcess(contentType.toString())) {
+            return uploadImage(filePart);
+        }
 
-        return DataBufferUtils.join(filePart.content())
-                .flatMap(dataBuffer -> {
+        return readBytes(filePart).flatMap(original -> uploadProfileImage(original, contentType));
+    }
+
+    /**
+     * Lee el archivo completo en memoria, con el límite de {@code images.processing.max-size}.
+     */
+    public Mono<byte[]> readBytes(FilePart filePart) {
+        return DataBufferUtils.join(filePart.content(), maxImageBytes)
+                .map(dataBuffer -> {
                     byte[] bytes = new byte[dataBuffer.readableByteCount()];
                     dataBuffer.read(bytes);
                     DataBufferUtils.release(dataBuffer);
+                    return bytes;
+                });
+    }
 
-                    return WebClient.builder()
-                            .baseUrl(supabaseUrl + "/storage/v1/object")
-                            .defaultHeader("Authorization", "Bearer " + supabaseApiKey)
-                            .defaultHeader("Content-Type", filePart.headers().getContentType().toString())
-                            .build()
-                            .put()
-                            .uri(uriBuilder -> uriBuilder
-                                    .path("/" + supabaseBucket + "/" + filePath)
-                                    .queryParam("upsert", true)
-                                    .build())
-                            .body(BodyInserters.fromValue(bytes))
-                            .retrieve()
-                            .bodyToMono(String.class)
-                            .map(resp -> supabaseUrl + "/storage/v1/object/public/" + supabaseBucket + "/" + filePath);
+    /**
+     * Igual que {@link #uploadProfileImage(FilePart)} para una imagen ya leída en memoria
+     * (aprovisionamiento asíncrono, donde los bytes se guardan en el outbox).
+     */
+    public Mono<String> uploadProfileImage(byte[] original, MediaType contentType) {
+        if (contentType == null || !imageProcessingService.canProcess(contentType.toString())) {
+            // Sin nombre de archivo (los bytes vienen del outbox): la extensión sale del tipo de contenido
+            MediaType type = contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM;
+            return putBytes(supabaseFolder + "/" + UUID.randomUUID() + "." + extensionOf(type), type, original);
+        }
+
+        return imageProcessingService.process(original)
+                .flatMap(processed -> {
+                    String directory = supabaseFolder + "/" + processed.getContentHash() + "/";
+                    String originalPath = directory + "original." + extensionOf(contentType);
+                    return objectExists(originalPath)
+                            .flatMap(exists -> {
+                                if (exists) {
+                                    log.debug("Imagen {} ya almacenada, se reutiliza", processed.getContentHash());
+                                    return Mono.just(publicUrl(originalPath));
+                                }
+                                // Variantes primero y original al final: si la original existe, el conjunto está completo
+                                return Flux.fromIterable(processed.getVariants().entrySet())
+                                        .flatMap(variant -> putBytes(directory + variant.getKey().getObjectName(),
+                                                MediaType.IMAGE_JPEG, variant.getValue()))
+                                        .then(putBytes(originalPath, contentType, original));
+                            });
                 });
     }
 
+    private Mono<String> putBytes(String filePath, MediaType contentType, byte[] bytes) {
+        return putObject(filePath, contentType, Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes))));
+    }
+
+    private Mono<Boolean> objectExists(String filePath) {
+        return webClient.head()
+                .uri("/public/" + supabaseBucket + "/" + filePath)
+                .retrieve()
+                .toBodilessEntity()
+                .map(resp -> true)
+                .onErrorReturn(false);
+    }
+
+    private static String extensionOf(MediaType contentType) {
+        String subtype = contentType.getSubtype().toLowerCase();
+        return switch (subtype) {
+            case "jpeg", "pjpeg" -> "jpg";
+            case "x-png" -> "png";
+            case "svg+xml" -> "svg";
+            case "octet-stream" -> "bin";
+            default -> subtype.replaceAll("[^a-z0-9]", "");
+        };
+    }
+
+    private String publicUrl(String filePath) {
+        return supabaseUrl + "/storage/v1/object/public/" + supabaseBucket + "/" + filePath;
+    }
+
+    private Mono<String> putObject(String filePath, MediaType contentType, Flux<DataBuffer> content) {
+        return Mono.defer(() -> {
+            AtomicLong bytes = new AtomicLong();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Flux<DataBuffer> countedContent = content
+                    .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()));
+
+            return webClient.put()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/" + supabaseBucket + "/" + filePath)
+                            .queryParam("upsert", true)
+                            .build())
+                    .contentType(contentType)
+                    .body(BodyInserters.fromDataBuffers(countedContent))
+                    .retrieve()
+                    .toBodilessEntity()
+                    .map(resp -> publicUrl(filePath))
+                    .doOnEach(signal -> {
+                        if (signal.isOnNext() || signal.isOnError()) {
+                            String outcome = signal.isOnError() ? "error" : "success";
+                            sample.stop(meterRegistry.timer("supabase.upload", "outcome", outcome));
+                            uploadBytes.record(bytes.get());
+                            log.debug("Subida a Supabase {} ({} bytes): {}", filePath, bytes.get(), outcome);
+                        }
+                    });
+        });
+    }
+
     /**
      * Elimina una imagen de Supabase Storage en base a su URL pública
      */
     public Mono<Boolean> deleteImage(String publicUrl) {
         if (publicUrl == null || publicUrl.isBlank()) return Mono.just(false);
 
+        // Las imágenes direccionadas por contenido pueden estar compartidas entre usuarios
+        if (ImageVariant.isContentAddressed(publicUrl)) {
+            log.debug("Imagen compartida por hash, no se elimina: {}", publicUrl);
+            return Mono.just(false);
+        }
+
         // Extrae el path del archivo desde la URL pública
         String filePrefix = supabaseUrl + "/storage/v1/object/public/" + supabaseBucket + "/";
         if (!publicUrl.startsWith(filePrefix)) {
@@ -74,11 +223,7 @@ public class SupabaseStorageService {
 
         String filePath = publicUrl.replace(filePrefix, "");
 
-        return WebClient.builder()
-                .baseUrl(supabaseUrl + "/storage/v1/object")
-                .defaultHeader("Authorization", "Bearer " + supabaseApiKey)
-                .build()
-                .delete()
+        return webClient.delete()
                 .uri("/" + supabaseBucket + "/" + filePath)
                 .retrieve()
                 .bodyToMono(String.class)
@@ -0,0 +1,189 @@
+package pe.edu.vallegrande.user_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user_service.cache.UserProfileCache;
+import pe.edu.vallegrande.user_service.dto.BulkItemResultDto;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.dto.UserField;
+import pe.edu.vallegrande.user_service.identity.IdentityProvider;
+import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Operaciones administrativas sobre listas de usuarios (borrado y asignación de rol).
+ * Los IDs se procesan en lotes con concurrencia acotada: {@link IdentityProvider#deleteUsers} para el borrado
+ * y una única sentencia {@code DELETE/UPDATE ... WHERE id = ANY(...)} por lote en la base de datos.
+ */
+@Service
+public class UserBatchService {
+
+    // Límite de la API de Firebase para deleteUsers
+    private static final int FIREBASE_MAX_BATCH = 1000;
+    // Lo que necesitan el proveedor, la caché y el feed de cambios; nunca el hash de la contraseña
+    private static final List<String> BATCH_COLUMNS = UserField.columns(
+            EnumSet.of(UserField.FIREBASE_UID, UserField.EMAIL, UserField.ROLE, UserField.VERSION));
+
+    private final UsersRepository usersRepository;
+    private final IdentityProvider identityProvider;
+    private final UserProfileCache userProfileCache;
+    private final UserChangeFeed userChangeFeed;
+    private final int batchSize;
+    private final int concurrency;
+
+    public UserBatchService(UsersRepository usersRepository,
+                            IdentityProvider identityProvider,
+                            UserProfileCache userProfileCache,
+                            UserChangeFeed userChangeFeed,
+                            @Value("${users.batch.size:500}") int batchSize,
+                            @Value("${users.batch.concurrency:4}") int concurrency) {
+        this.usersRepository = usersRepository;
+        this.identityProvider = identityProvider;
+        this.userProfileCache = userProfileCache;
+        this.userChangeFeed = userChangeFeed;
+        this.batchSize = Math.min(batchSize, FIREBASE_MAX_BATCH);
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Elimina las cuentas de los usuarios indicados y sus filas en la base de datos. Devuelve un resultado por ID.
+     */
+    public Flux<BulkItemResultDto> deleteUsers(List<Integer> ids) {
+        return inBatches(ids, this::deleteBatch);
+    }
+
+    /**
+     * Asigna el rol indicado a todos los usuarios (claim del proveedor de identidades + columna role). Devuelve un resultado por ID.
+     */
+    public Flux<BulkItemResultDto> assignRole(List<Integer> ids, List<String> role) {
+        if (role == null || role.isEmpty()) {
+            return Flux.error(new IllegalArgumentException("❌ Debe indicar el rol a asignar"));
+        }
+        return inBatches(ids, batch -> assignRoleBatch(batch, role));
+    }
+
+    private Flux<BulkItemResultDto> inBatches(List<Integer> ids, Function<List<Integer>, Flux<BulkItemResultDto>> operation) {
+        if (ids == null || ids.isEmpty()) return Flux.empty();
+        // Posición de cada ID en la petición, para el campo index de los resultados
+        Map<Integer, Long> positions = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            positions.putIfAbsent(id, (long) positions.size());
+        }
+        return Flux.fromIterable(positions.keySet())
+                .buffer(batchSize)
+                .flatMap(operation, concurrency)
+                .doOnNext(result -> result.setIndex(positions.get(result.getId())));
+    }
+
+    private Flux<BulkItemResultDto> deleteBatch(List<Integer> ids) {
+        return loadUsers(ids).flatMapMany(found -> {
+            List<BulkItemResultDto> results = notFound(ids, found);
+            List<User> users = new ArrayList<>(found.values());
+            if (users.isEmpty()) return Flux.fromIterable(results);
+
+            List<String> uids = users.stream().map(User::getFirebaseUid).collect(Collectors.toList());
+            return identityProvider.deleteUsers(uids)
+                    .flatMapMany(errors -> {
+                        Set<Integer> failedIndexes = errors.keySet();
+                        List<User> deleted = new ArrayList<>();
+                        for (int i = 0; i < users.size(); i++) {
+                            User user = users.get(i);
+                            if (failedIndexes.contains(i)) {
+                                results.add(failed(user.getId(), "No se pudo eliminar la cuenta"));
+                            } else {
+                                deleted.add(user);
+                            }
+                        }
+                        Integer[] deletedIds = deleted.stream().map(User::getId).toArray(Integer[]::new);
+                        return usersRepository.deleteByIdIn(deletedIds)
+                                .thenMany(Flux.fromIterable(deleted))
+                                .map(user -> {
+                                    UserDto dto = UserDto.fromEntity(user);
+                                    userProfileCache.evict(dto);
+                                    userChangeFeed.deleted(dto);
+                                    return ok(user.getId());
+                                })
+                                .onErrorResume(e -> Flux.fromIterable(deleted).map(user -> failed(user.getId(), e.getMessage())))
+                                .concatWith(Flux.fromIterable(results));
+                    })
+                    .onErrorResume(e -> Flux.fromIterable(users).map(user -> failed(user.getId(), e.getMessage()))
+                            .concatWith(Flux.fromIterable(results)));
+        });
+    }
+
+    private Flux<BulkItemResultDto> assignRoleBatch(List<Integer> ids, List<String> role) {
+        String primaryRole = role.get(0).toUpperCase(Locale.ROOT);
+        return loadUsers(ids).flatMapMany(found -> {
+            List<BulkItemResultDto> results = notFound(ids, found);
+
+            List<User> updated = Collections.synchronizedList(new ArrayList<>());
+
+            // El SDK no ofrece claims por lote: llamadas individuales con concurrencia acotada
+            return Flux.fromIterable(found.values())
+                    .flatMap(user -> identityProvider.setRole(user.getFirebaseUid(), primaryRole)
+                            .doOnSuccess(done -> updated.add(user))
+                            .then(Mono.<BulkItemResultDto>empty())
+                            .onErrorResume(e -> Mono.just(failed(user.getId(), "Identidad: " + e.getMessage()))), concurrency)
+                    .collectList()
+                    .flatMapMany(claimFailures -> {
+                        results.addAll(claimFailures);
+                        if (updated.isEmpty()) return Flux.fromIterable(results);
+
+                        Integer[] updatedIds = updated.stream().map(User::getId).toArray(Integer[]::new);
+                        return usersRepository.updateRoleByIdIn(updatedIds, role.toArray(String[]::new))
+                                .collectMap(User::getId)
+                                .flatMapIterable(saved -> {
+                                    List<BulkItemResultDto> outcomes = new ArrayList<>(updated.size());
+                                    for (User user : updated) {
+                                        User row = saved.get(user.getId());
+                                        if (row == null) {
+                                            outcomes.add(failed(user.getId(), "Usuario no encontrado"));
+                                            continue;
+                                        }
+                                        // La fila devuelta por el UPDATE, no la leída antes de llamar al proveedor
+                                        UserDto dto = UserDto.fromEntity(row);
+                                        userProfileCache.put(dto);
+                                        userChangeFeed.roleChanged(dto);
+                                        outcomes.add(ok(user.getId()));
+                                    }
+                                    return outcomes;
+                                })
+                                .onErrorResume(e -> Flux.fromIterable(updated).map(user -> failed(user.getId(), e.getMessage())))
+                                .concatWith(Flux.fromIterable(results));
+                    });
+        });
+    }
+
+    private Mono<Map<Integer, User>> loadUsers(List<Integer> ids) {
+        return usersRepository.findAllById(ids, BATCH_COLUMNS).collectMap(User::getId);
+    }
+
+    private static List<BulkItemResultDto> notFound(List<Integer> ids, Map<Integer, User> found) {
+        List<BulkItemResultDto> results = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!found.containsKey(id)) results.add(failed(id, "Usuario no encontrado"));
+        }
+        return results;
+    }
+
+    private static BulkItemResultDto ok(Integer id) {
+        return BulkItemResultDto.ok(0, String.valueOf(id), id);
+    }
+
+    private static BulkItemResultDto failed(Integer id, String message) {
+        return BulkItemResultDto.failed(0, String.valueOf(id), id, message);
+    }
+}
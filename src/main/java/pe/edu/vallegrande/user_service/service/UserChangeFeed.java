@@ -0,0 +1,158 @@
+package pe.edu.vallegrande.user_service.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.user_service.dto.UserChangeEventDto;
+import pe.edu.vallegrande.user_service.dto.UserChangeType;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Feed en memoria de los cambios de usuarios, para que otros servicios apliquen deltas en lugar de
+ * releer el listado completo. Cada evento lleva una secuencia creciente y se guarda en un buffer circular
+ * de {@code users.changes.replay-size} eventos: un suscriptor que se reconecta con {@code Last-Event-ID}
+ * recibe lo que se perdió si sigue en la ventana, o un {@link UserChangeType#RESYNC} si no.
+ * <p>
+ * La secuencia es por instancia y se reinicia al arrancar; el id de evento incluye un identificador de
+ * la instancia para detectar ids de otro proceso. Las escrituras de otras réplicas llegan por
+ * {@code UserCacheCoherence} ({@link #remote}) sin el estado del usuario; si ese canal se interrumpe,
+ * {@link #resync()} pide a los suscriptores recargar porque pudo perderse alguna. Los eventos se publican tras confirmar la escritura:
+ * dos escrituras concurrentes del mismo usuario pueden llegar en cualquier orden, por eso llevan la versión.
+ */
+@Slf4j
+@Component
+public class UserChangeFeed {
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final UserChangeEventDto[] ring;
+    private final Set<FluxSink<UserChangeEventDto>> subscribers = new CopyOnWriteArraySet<>();
+    // Protegido por this, igual que ring: publicar y registrar suscriptores no pueden intercalarse
+    private long sequence;
+
+    public UserChangeFeed(@Value("${users.changes.replay-size:10000}") int replaySize,
+                          MeterRegistry meterRegistry) {
+        this.ring = new UserChangeEventDto[replaySize];
+        Gauge.builder("users.changes.subscribers", subscribers, Set::size)
+                .description("Suscriptores conectados al feed de cambios")
+                .register(meterRegistry);
+    }
+
+    public void created(UserDto user) {
+        publish(UserChangeType.CREATED, user, null);
+    }
+
+    public void updated(UserDto user) {
+        publish(UserChangeType.UPDATED, user, null);
+    }
+
+    public void roleChanged(UserDto user) {
+        publish(UserChangeType.ROLE_CHANGED, user, null);
+    }
+
+    public void emailChanged(UserDto user, String previousEmail) {
+        publish(UserChangeType.EMAIL_CHANGED, user, previousEmail);
+    }
+
+    public void deleted(UserDto user) {
+        publish(UserChangeType.DELETED, user, null);
+    }
+
+    /**
+     * Escritura confirmada por otra réplica: solo se conocen las claves y la versión, el consumidor lee el
+     * usuario si necesita su estado.
+     */
+    public void remote(UserChangeType type, Integer userId, String firebaseUid, Long version, String previousEmail) {
+        publish(type, userId, firebaseUid, version, null, previousEmail);
+    }
+
+    /**
+     * Pide a los suscriptores recargar el listado completo. Queda en el buffer, así que quien reconecte
+     * con un id anterior también lo recibe.
+     */
+    public void resync() {
+        publish(UserChangeType.RESYNC, null, null, null, null, null);
+    }
+
+    /**
+     * Cambios a partir de {@code lastEventId} (exclusivo) y después los nuevos, sin huecos ni duplicados.
+     * Sin {@code lastEventId} solo los nuevos. Un suscriptor con más de {@code replay-size} eventos pendientes
+     * termina con error: al reconectar con su último id recupera la ventana o recibe RESYNC.
+     */
+    public Flux<UserChangeEventDto> changes(String lastEventId) {
+        return Flux.<UserChangeEventDto>create(sink -> {
+                    synchronized (this) {
+                        replay(lastEventId).forEach(sink::next);
+                        subscribers.add(sink);
+                    }
+                    sink.onDispose(() -> subscribers.remove(sink));
+                }, FluxSink.OverflowStrategy.IGNORE)
+                .onBackpressureBuffer(ring.length, BufferOverflowStrategy.ERROR)
+                // Quien publica solo encola: la escritura a cada cliente no ocurre dentro del lock
+                .publishOn(Schedulers.parallel());
+    }
+
+    private void publish(UserChangeType type, UserDto user, String previousEmail) {
+        UserDto state = type == UserChangeType.DELETED ? null : user;
+        publish(type, user.getId(), user.getFirebaseUid(), user.getVersion(), state, previousEmail);
+    }
+
+    private synchronized void publish(UserChangeType type, Integer userId, String firebaseUid, Long version,
+                                      UserDto state, String previousEmail) {
+        long seq = ++sequence;
+        UserChangeEventDto event = new UserChangeEventDto(id(seq), seq, type, userId, firebaseUid,
+                version, Instant.now(), state, previousEmail);
+        ring[(int) (seq % ring.length)] = event;
+        for (FluxSink<UserChangeEventDto> subscriber : subscribers) {
+            subscriber.next(event);
+        }
+    }
+
+    /**
+     * Eventos posteriores a {@code lastEventId} que siguen en el buffer. Llamar con el lock tomado.
+     */
+    private List<UserChangeEventDto> replay(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) return List.of();
+
+        long oldest = Math.max(1, sequence - ring.length + 1);
+        long last = parseSequence(lastEventId.trim());
+        if (last < oldest - 1 || last > sequence) {
+            log.debug("Last-Event-ID {} fuera de la ventana ({}-{}), se pide RESYNC", lastEventId, oldest, sequence);
+            return List.of(new UserChangeEventDto(id(sequence), sequence, UserChangeType.RESYNC,
+                    null, null, null, Instant.now(), null, null));
+        }
+        List<UserChangeEventDto> missed = new ArrayList<>((int) (sequence - last));
+        for (long seq = last + 1; seq <= sequence; seq++) {
+            missed.add(ring[(int) (seq % ring.length)]);
+        }
+        return missed;
+    }
+
+    /**
+     * Secuencia de un id de esta instancia; -1 (fuera de ventana) si es de otra o no tiene el formato esperado.
+     */
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator <= 0 || !eventId.substring(0, separator).equals(instance)) return -1;
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String id(long seq) {
+        return instance + "-" + seq;
+    }
+}
@@ -0,0 +1,368 @@
+package pe.edu.vallegrande.user_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user_service.cache.EmailExistenceFilter;
+import pe.edu.vallegrande.user_service.dto.BulkItemResultDto;
+import pe.edu.vallegrande.user_service.dto.UserCreateDto;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.identity.IdentityImport;
+import pe.edu.vallegrande.user_service.identity.IdentityProvider;
+import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de usuarios desde CSV o NDJSON.
+ * Las filas se agrupan en lotes: una consulta de emails existentes, una llamada
+ * {@link IdentityProvider#importUsers} (hasta 1000 usuarios) y un único {@code INSERT} multi-fila por lote.
+ * Los resultados por fila se emiten en cuanto termina cada lote.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    // Límite de la API de Firebase para importUsers
+    private static final int FIREBASE_MAX_IMPORT = 1000;
+
+    private final UsersRepository usersRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final IdentityProvider identityProvider;
+    private final MeterRegistry meterRegistry;
+    private final EmailExistenceFilter emailExistenceFilter;
+    private final UserChangeFeed userChangeFeed;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int batchSize;
+    private final Duration batchWindow;
+    private final int concurrency;
+
+    public UserImportService(UsersRepository usersRepository,
+                             PasswordHashingService passwordHashingService,
+                             IdentityProvider identityProvider,
+                             MeterRegistry meterRegistry,
+                             EmailExistenceFilter emailExistenceFilter,
+                             UserChangeFeed userChangeFeed,
+                             @Value("${users.import.batch-size:500}") int batchSize,
+                             @Value("${users.import.batch-window:500ms}") Duration batchWindow,
+                             @Value("${users.import.concurrency:2}") int concurrency) {
+        this.usersRepository = usersRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.identityProvider = identityProvider;
+        this.meterRegistry = meterRegistry;
+        this.emailExistenceFilter = emailExistenceFilter;
+        this.userChangeFeed = userChangeFeed;
+        this.batchSize = Math.min(batchSize, FIREBASE_MAX_IMPORT);
+        this.batchWindow = batchWindow;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Importa usuarios desde líneas CSV. La primera línea es la cabecera con los nombres de campo de
+     * {@link UserCreateDto} (name, lastName, documentType, documentNumber, cellPhone, email, password, role);
+     * varios roles se separan con {@code |}.
+     */
+    public Flux<BulkItemResultDto> importCsv(Flux<String> lines) {
+        return lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .switchOnFirst((first, rows) -> {
+                    if (!first.hasValue()) return Flux.empty();
+                    List<String> header = parseCsvLine(first.get().getT2()).stream()
+                            .map(String::trim)
+                            .collect(Collectors.toList());
+                    return importRows(rows.skip(1).map(line -> ImportRow.fromCsv(line.getT1() + 1, header, line.getT2())));
+                });
+    }
+
+    /**
+     * Importa usuarios desde NDJSON: un {@link UserCreateDto} por línea.
+     */
+    public Flux<BulkItemResultDto> importNdjson(Flux<String> lines) {
+        return importRows(lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> {
+                    long lineNumber = line.getT1() + 1;
+                    try {
+                        return ImportRow.valid(lineNumber, objectMapper.readValue(line.getT2(), UserCreateDto.class));
+                    } catch (Exception e) {
+                        return ImportRow.invalid(lineNumber, null, "JSON inválido: " + e.getMessage());
+                    }
+                }));
+    }
+
+    private Flux<BulkItemResultDto> importRows(Flux<ImportRow> rows) {
+        // Emails ya vistos en toda la importación: los lotes se procesan en paralelo y el proveedor no rechaza duplicados
+        return Flux.defer(() -> {
+            Set<String> importEmails = ConcurrentHashMap.newKeySet();
+            return rows.bufferTimeout(batchSize, batchWindow)
+                    .flatMap(batch -> importBatch(batch, importEmails), concurrency);
+        })
+                .doOnNext(result -> meterRegistry.counter("users.import.rows",
+                        "outcome", result.isSuccess() ? "success" : "error").increment());
+    }
+
+    private Flux<BulkItemResultDto> importBatch(List<ImportRow> batch, Set<String> importEmails) {
+        long start = System.nanoTime();
+        List<BulkItemResultDto> results = new ArrayList<>(batch.size());
+        List<ImportRow> candidates = new ArrayList<>(batch.size());
+        Set<String> batchEmails = new HashSet<>();
+
+        for (ImportRow row : batch) {
+            if (row.error != null) {
+                results.add(BulkItemResultDto.failed(row.index, row.email(), null, row.error));
+            } else if (!importEmails.add(row.email())) {
+                results.add(BulkItemResultDto.failed(row.index, row.email(), null, "Email duplicado en la importación"));
+            } else {
+                batchEmails.add(row.email());
+                candidates.add(row);
+            }
+        }
+
+        // Solo se consultan los emails que el filtro no puede descartar
+        List<String> possiblyExisting = batchEmails.stream()
+                .filter(emailExistenceFilter::mightContain)
+                .collect(Collectors.toList());
+        Mono<List<BulkItemResultDto>> imported = usersRepository.findExistingEmails(possiblyExisting)
+                .collect(Collectors.toSet())
+                .flatMap(existing -> {
+                    List<ImportRow> toCreate = new ArrayList<>(candidates.size());
+                    for (ImportRow row : candidates) {
+                        if (existing.contains(row.email())) {
+                            results.add(BulkItemResultDto.failed(row.index, row.email(), null, "El correo ya está registrado"));
+                        } else {
+                            toCreate.add(row);
+                        }
+                    }
+                    return createAll(toCreate);
+                })
+                .map(created -> {
+                    results.addAll(created);
+                    results.sort(Comparator.comparing(BulkItemResultDto::getIndex));
+                    log.info("Lote de importación: {} filas en {} ms", batch.size(), (System.nanoTime() - start) / 1_000_000);
+                    return results;
+                });
+
+        return imported.flatMapIterable(list -> list);
+    }
+
+    /**
+     * Crea las identidades con una sola llamada {@code importUsers} y luego inserta en bloque las que
+     * el proveedor aceptó. Si el INSERT falla, se eliminan del proveedor las cuentas recién creadas.
+     */
+    private Mono<List<BulkItemResultDto>> createAll(List<ImportRow> rows) {
+        if (rows.isEmpty()) return Mono.just(List.of());
+
+        return Flux.fromIterable(rows)
+                .flatMap(this::hashPassword)
+                .then(Mono.defer(() -> identityProvider.importUsers(toImports(rows))))
+                .flatMap(errors -> {
+                    List<BulkItemResultDto> results = new ArrayList<>(rows.size());
+
+                    List<ImportRow> accepted = new ArrayList<>(rows.size());
+                    for (int i = 0; i < rows.size(); i++) {
+                        ImportRow row = rows.get(i);
+                        if (errors.containsKey(i)) {
+                            results.add(BulkItemResultDto.failed(row.index, row.email(), null, "Identidad: " + errors.get(i)));
+                        } else {
+                            accepted.add(row);
+                        }
+                    }
+
+                    return usersRepository.insertAll(accepted.stream().map(ImportRow::toEntity).collect(Collectors.toList()))
+                            .collectList()
+                            .map(saved -> {
+                                // insertAll no devuelve las filas en orden: cada una se asocia a su fila del archivo por UID
+                                Map<String, ImportRow> byUid = accepted.stream()
+                                        .collect(Collectors.toMap(row -> row.uid, row -> row));
+                                for (User user : saved) {
+                                    ImportRow row = byUid.get(user.getFirebaseUid());
+                                    results.add(BulkItemResultDto.ok(row.index, row.email(), user.getId()));
+                                    emailExistenceFilter.add(row.email());
+                                    userChangeFeed.created(UserDto.fromEntity(user));
+                                }
+                                return results;
+                            })
+                            .onErrorResume(e -> compensate(accepted, e).map(failed -> {
+                                results.addAll(failed);
+                                return results;
+                            }));
+                })
+                .onErrorResume(e -> {
+                    log.error("Error al importar lote de {} usuarios: {}", rows.size(), e.getMessage());
+                    return Mono.just(rows.stream()
+                            .map(row -> BulkItemResultDto.failed(row.index, row.email(), null, e.getMessage()))
+                            .collect(Collectors.toList()));
+                });
+    }
+
+    /**
+     * Asigna el UID y los hashes de la fila. Con BCrypt el mismo hash sirve para Firebase y la BD;
+     * con Argon2 Firebase recibe un hash BCrypt aparte, ya que no admite importar Argon2.
+     */
+    private Mono<ImportRow> hashPassword(ImportRow row) {
+        row.uid = UUID.randomUUID().toString().replace("-", "");
+        String rawPassword = row.dto.getPassword();
+        return passwordHashingService.encode(rawPassword)
+                .flatMap(hash -> {
+                    row.passwordHash = hash;
+                    return passwordHashingService.usesBcrypt()
+                            ? Mono.just(hash)
+                            : passwordHashingService.encodeBcrypt(rawPassword);
+                })
+                .map(bcryptHash -> {
+                    row.firebasePasswordHash = bcryptHash;
+                    return row;
+                });
+    }
+
+    private Mono<List<BulkItemResultDto>> compensate(List<ImportRow> accepted, Throwable cause) {
+        log.error("Error al insertar lote importado, se revierten {} cuentas: {}", accepted.size(), cause.getMessage());
+        List<String> uids = accepted.stream().map(row -> row.uid).collect(Collectors.toList());
+        List<BulkItemResultDto> failed = accepted.stream()
+                .map(row -> BulkItemResultDto.failed(row.index, row.email(), null, "Error al guardar: " + cause.getMessage()))
+                .collect(Collectors.toList());
+        return identityProvider.deleteUsers(uids)
+                .doOnError(e -> log.error("No se pudieron revertir las cuentas {}: {}", uids, e.getMessage()))
+                .then(Mono.just(failed))
+                .onErrorReturn(failed);
+    }
+
+    private static List<IdentityImport> toImports(List<ImportRow> rows) {
+        return rows.stream()
+                .map(row -> new IdentityImport(row.uid, row.dto.getEmail(), row.firebasePasswordHash, row.primaryRole()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Separa una línea CSV respetando comillas dobles ({@code ""} escapa una comilla).
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    /**
+     * Fila de entrada con su posición y el UID y hashes asignados antes de enviarla a Firebase.
+     */
+    private static class ImportRow {
+        private final long index;
+        private final UserCreateDto dto;
+        private final String error;
+        private String uid;
+        private String passwordHash;
+        private String firebasePasswordHash;
+
+        private ImportRow(long index, UserCreateDto dto, String error) {
+            this.index = index;
+            this.dto = dto;
+            this.error = error;
+        }
+
+        static ImportRow valid(long index, UserCreateDto dto) {
+            if (dto.getEmail() == null || dto.getEmail().isBlank()) {
+                return invalid(index, dto, "Falta el email");
+            }
+            if (dto.getPassword() == null || dto.getPassword().length() < 6) {
+                return invalid(index, dto, "La contraseña debe tener al menos 6 caracteres");
+            }
+            dto.setEmail(dto.getEmail().trim());
+            if (dto.getRole() == null || dto.getRole().isEmpty()) {
+                dto.setRole(List.of("USER"));
+            }
+            return new ImportRow(index, dto, null);
+        }
+
+        static ImportRow invalid(long index, UserCreateDto dto, String error) {
+            return new ImportRow(index, dto, error);
+        }
+
+        static ImportRow fromCsv(long index, List<String> header, String line) {
+            List<String> fields = parseCsvLine(line);
+            if (fields.size() != header.size()) {
+                return invalid(index, null, "Se esperaban " + header.size() + " columnas y hay " + fields.size());
+            }
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                String value = fields.get(i).trim();
+                values.put(header.get(i), value.isEmpty() ? null : value);
+            }
+            UserCreateDto dto = new UserCreateDto();
+            dto.setName(values.get("name"));
+            dto.setLastName(values.get("lastName"));
+            dto.setDocumentType(values.get("documentType"));
+            dto.setDocumentNumber(values.get("documentNumber"));
+            dto.setCellPhone(values.get("cellPhone"));
+            dto.setEmail(values.get("email"));
+            dto.setPassword(values.get("password"));
+            String roles = values.get("role");
+            dto.setRole(roles == null ? null : Arrays.stream(roles.split("\\|"))
+                    .map(String::trim)
+                    .filter(role -> !role.isEmpty())
+                    .collect(Collectors.toList()));
+            return valid(index, dto);
+        }
+
+        String email() {
+            return dto != null ? dto.getEmail() : null;
+        }
+
+        String primaryRole() {
+            return dto.getRole().get(0).toUpperCase(Locale.ROOT);
+        }
+
+        User toEntity() {
+            User user = new User();
+            user.setFirebaseUid(uid);
+            user.setName(dto.getName());
+            user.setLastName(dto.getLastName());
+            user.setDocumentType(dto.getDocumentType());
+            user.setDocumentNumber(dto.getDocumentNumber());
+            user.setCellPhone(dto.getCellPhone());
+            user.setEmail(dto.getEmail());
+            user.setPassword(passwordHash);
+            user.setRole(dto.getRole());
+            user.setProfileImage("");
+            return user;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package pe.edu.vallegrande.user_service.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.user_service.cache.EmailExistenceFilter;
+import pe.edu.vallegrande.user_service.dto.ProvisioningStatusDto;
+import pe.edu.vallegrande.user_service.dto.UserCreateDto;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.model.UserProvisioningTask;
+import pe.edu.vallegrande.user_service.model.UserStatus;
+import pe.edu.vallegrande.user_service.repository.UserProvisioningOutboxRepository;
+import pe.edu.vallegrande.user_service.repository.UsersRepository;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Alta de usuarios con outbox transaccional: la petición solo valida, calcula los hashes y guarda
+ * el usuario {@link UserStatus#PENDING} junto con su registro de outbox en una única transacción.
+ * Firebase y Supabase quedan a cargo de {@link UserProvisioningWorker}, así que la latencia de la
+ * petición no depende de terceros y un fallo a medias no deja cuentas huérfanas.
+ */
+@Service
+public class UserProvisioningService {
+
+    private final UsersRepository usersRepository;
+    private final UserProvisioningOutboxRepository outboxRepository;
+    private final UserService userService;
+    private final PasswordHashingService passwordHashingService;
+    private final SupabaseStorageService supabaseStorageService;
+    private final EmailExistenceFilter emailExistenceFilter;
+    private final PipelineObserver pipelineObserver;
+    private final TransactionalOperator transactionalOperator;
+    private final UserProvisioningWorker worker;
+    private final UserChangeFeed userChangeFeed;
+
+    public UserProvisioningService(UsersRepository usersRepository,
+                                   UserProvisioningOutboxRepository outboxRepository,
+                                   UserService userService,
+                                   PasswordHashingService passwordHashingService,
+                                   SupabaseStorageService supabaseStorageService,
+                                   EmailExistenceFilter emailExistenceFilter,
+                                   PipelineObserver pipelineObserver,
+                                   TransactionalOperator transactionalOperator,
+                                   UserProvisioningWorker worker,
+                                   UserChangeFeed userChangeFeed) {
+        this.usersRepository = usersRepository;
+        this.outboxRepository = outboxRepository;
+        this.userService = userService;
+        this.passwordHashingService = passwordHashingService;
+        this.supabaseStorageService = supabaseStorageService;
+        this.emailExistenceFilter = emailExistenceFilter;
+        this.pipelineObserver = pipelineObserver;
+        this.transactionalOperator = transactionalOperator;
+        this.worker = worker;
+        this.userChangeFeed = userChangeFeed;
+    }
+
+    /**
+     * Registra el alta y devuelve el usuario en estado PENDING; el worker la completa en segundo plano.
+     */
+    public Mono<UserDto> enqueue(UserCreateDto dto, FilePart image) {
+        if (dto.getEmail() == null || dto.getEmail().isBlank()) {
+            return Mono.error(new IllegalArgumentException("❌ Falta el email"));
+        }
+        // Firebase lo validaría al crear la cuenta; aquí ya no hay vuelta atrás hacia el cliente
+        if (dto.getPassword() == null || dto.getPassword().length() < 6) {
+            return Mono.error(new IllegalArgumentException("❌ La contraseña debe tener al menos 6 caracteres"));
+        }
+        dto.setEmail(dto.getEmail().trim());
+        if (dto.getRole() == null || dto.getRole().isEmpty()) {
+            dto.setRole(List.of("USER"));
+        }
+
+        Mono<Optional<byte[]>> imageBytes = image != null
+                ? pipelineObserver.stage("image.read", supabaseStorageService.readBytes(image)).map(Optional::of)
+                : Mono.just(Optional.empty());
+
+        return pipelineObserver.pipeline("provision", pipelineObserver.stage("emailExists", userService.emailExists(dto.getEmail()))
+                .flatMap(exists -> {
+                    if (exists) {
+                        return Mono.error(new IllegalArgumentException("❌ El correo ya está registrado."));
+                    }
+                    return Mono.zip(imageBytes, hashes(dto.getPassword()));
+                })
+                .flatMap(tuple -> {
+                    User user = new User();
+                    user.setFirebaseUid(UUID.randomUUID().toString().replace("-", ""));
+                    user.setName(dto.getName());
+                    user.setLastName(dto.getLastName());
+                    user.setDocumentType(dto.getDocumentType());
+                    user.setDocumentNumber(dto.getDocumentNumber());
+                    user.setCellPhone(dto.getCellPhone());
+                    user.setEmail(dto.getEmail());
+                    user.setPassword(tuple.getT2().getT1());
+                    user.setRole(dto.getRole());
+                    user.setProfileImage("");
+                    user.setStatus(UserStatus.PENDING);
+
+                    UserProvisioningTask task = new UserProvisioningTask();
+                    task.setFirebasePasswordHash(tuple.getT2().getT2());
+                    tuple.getT1().ifPresent(bytes -> {
+                        MediaType contentType = image.headers().getContentType();
+                        task.setImage(bytes);
+                        task.setImageContentType(contentType != null ? contentType.toString() : null);
+                    });
+
+                    return pipelineObserver.stage("db.save", usersRepository.save(user)
+                            .flatMap(saved -> {
+                                task.setUserId(saved.getId());
+                                return outboxRepository.save(task).thenReturn(saved);
+                            })
+                            .as(transactionalOperator::transactional));
+                })
+                .map(saved -> {
+                    emailExistenceFilter.add(saved.getEmail());
+                    worker.wakeUp();
+                    UserDto pending = userService.toDto(saved);
+                    userChangeFeed.created(pending);
+                    return pending;
+                }));
+    }
+
+    /**
+     * Estado del aprovisionamiento de un usuario (la URL que devuelve el 202).
+     */
+    public Mono<ProvisioningStatusDto> status(Integer userId) {
+        return usersRepository.findById(userId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("Usuario no encontrado")))
+                .flatMap(user -> outboxRepository.findByUserId(userId)
+                        .map(task -> new ProvisioningStatusDto(userId, user.getStatus(), task.getAttempts(), task.getLastError(),
+                                user.getStatus() == UserStatus.PENDING ? task.getNextAttemptAt() : null))
+                        .defaultIfEmpty(new ProvisioningStatusDto(userId, user.getStatus(), null, null, null)));
+    }
+
+    /**
+     * Hash para la BD con el algoritmo configurado y hash BCrypt para importUsers (el mismo si ya es BCrypt).
+     */
+    private Mono<Tuple2<String, String>> hashes(String rawPassword) {
+        return pipelineObserver.stage("password.hash", passwordHashingService.encode(rawPassword)
+                .flatMap(hash -> (passwordHashingService.usesBcrypt() ? Mono.just(hash) : passwordHashingService.encodeBcrypt(rawPassword))
+                        .map(bcryptHash -> Tuples.of(hash, bcryptHash))));
+    }
+}
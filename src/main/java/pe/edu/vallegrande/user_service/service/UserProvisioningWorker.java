@@ -0,0 +1,293 @@
+package pe.edu.vallegrande.user_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.edu.vallegrande.user_service.cache.UserProfileCache;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.identity.IdentityImport;
+import pe.edu.vallegrande.user_service.identity.IdentityProvider;
+import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.model.UserProvisioningTask;
+import pe.edu.vallegrande.user_service.model.UserStatus;
+import pe.edu.vallegrande.user_service.repository.UserProvisioningOutboxRepository;
+import pe.edu.vallegrande.user_service.repository.UsersRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Procesa el outbox de aprovisionamiento: reclama lotes de registros vencidos, crea las cuentas con
+ * una sola llamada {@code importUsers} por lote (UID, hash BCrypt y claim de rol ya calculados), sube
+ * las imágenes y marca cada usuario ACTIVE borrando su registro en la misma transacción.
+ * Los fallos se reintentan con backoff exponencial; agotados los intentos se elimina la cuenta del
+ * proveedor de identidades (compensación) y el usuario queda FAILED; su registro se conserva con el error,
+ * sin el hash de la contraseña ni la imagen.
+ * Varias instancias pueden ejecutarlo a la vez: los registros se reclaman con {@code FOR UPDATE SKIP LOCKED}.
+ */
+@Slf4j
+@Component
+public class UserProvisioningWorker implements DisposableBean {
+
+    // Límite de la API de Firebase para importUsers
+    private static final int FIREBASE_MAX_IMPORT = 1000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final UserProvisioningOutboxRepository outboxRepository;
+    private final UsersRepository usersRepository;
+    private final IdentityProvider identityProvider;
+    private final SupabaseStorageService supabaseStorageService;
+    private final UserProfileCache userProfileCache;
+    private final UserChangeFeed userChangeFeed;
+    private final TransactionalOperator transactionalOperator;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final int uploadConcurrency;
+
+    // Señal para procesar sin esperar al siguiente sondeo (alta recién encolada o lote completo)
+    private final Sinks.Many<Boolean> wakeUps = Sinks.many().multicast().directBestEffort();
+    private volatile Disposable subscription;
+
+    public UserProvisioningWorker(UserProvisioningOutboxRepository outboxRepository,
+                                  UsersRepository usersRepository,
+                                  IdentityProvider identityProvider,
+                                  SupabaseStorageService supabaseStorageService,
+                                  UserProfileCache userProfileCache,
+                                  UserChangeFeed userChangeFeed,
+                                  TransactionalOperator transactionalOperator,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${users.provisioning.batch-size:100}") int batchSize,
+                                  @Value("${users.provisioning.poll-interval:1s}") Duration pollInterval,
+                                  @Value("${users.provisioning.lease:2m}") Duration lease,
+                                  @Value("${users.provisioning.max-attempts:8}") int maxAttempts,
+                                  @Value("${users.provisioning.backoff:5s}") Duration backoff,
+                                  @Value("${users.provisioning.max-backoff:10m}") Duration maxBackoff,
+                                  @Value("${users.provisioning.upload-concurrency:4}") int uploadConcurrency) {
+        this.outboxRepository = outboxRepository;
+        this.usersRepository = usersRepository;
+        this.identityProvider = identityProvider;
+        this.supabaseStorageService = supabaseStorageService;
+        this.userProfileCache = userProfileCache;
+        this.userChangeFeed = userChangeFeed;
+        this.transactionalOperator = transactionalOperator;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = Math.min(batchSize, FIREBASE_MAX_IMPORT);
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.uploadConcurrency = uploadConcurrency;
+    }
+
+    /**
+     * Sondea el outbox periódicamente; un solo lote en curso por instancia, los avisos intermedios se descartan.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.merge(Flux.interval(pollInterval).map(tick -> Boolean.TRUE), wakeUps.asFlux())
+                .onBackpressureDrop()
+                .concatMap(signal -> drain()
+                        .onErrorResume(e -> {
+                            log.error("Error al procesar el outbox de aprovisionamiento: {}", e.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    /**
+     * Pide procesar el outbox cuanto antes.
+     */
+    public void wakeUp() {
+        wakeUps.tryEmitNext(Boolean.TRUE);
+    }
+
+    private Mono<Void> drain() {
+        return outboxRepository.claimDue(batchSize, lease.toMillis())
+                .collectList()
+                .flatMap(tasks -> {
+                    if (tasks.isEmpty()) return Mono.empty();
+                    return processBatch(tasks)
+                            // Lote completo: probablemente quedan más registros pendientes
+                            .doOnSuccess(done -> {
+                                if (tasks.size() == batchSize) wakeUp();
+                            });
+                });
+    }
+
+    private Mono<Void> processBatch(List<UserProvisioningTask> tasks) {
+        List<Integer> userIds = tasks.stream().map(UserProvisioningTask::getUserId).collect(Collectors.toList());
+        return usersRepository.findAllById(userIds)
+                .collectMap(User::getId)
+                .flatMap(users -> {
+                    List<UserProvisioningTask> pending = new ArrayList<>(tasks.size());
+                    List<Mono<Void>> outcomes = new ArrayList<>();
+                    for (UserProvisioningTask task : tasks) {
+                        if (users.containsKey(task.getUserId())) {
+                            pending.add(task);
+                        } else {
+                            // El usuario se eliminó antes de completarse (ON DELETE CASCADE ya borra el registro)
+                            outcomes.add(outboxRepository.deleteById(task.getId()));
+                        }
+                    }
+                    if (pending.isEmpty()) return Mono.when(outcomes);
+
+                    List<String> emails = pending.stream().map(task -> users.get(task.getUserId()).getEmail())
+                            .filter(Objects::nonNull).distinct().collect(Collectors.toList());
+                    // importUsers no rechaza emails repetidos: si dos altas concurrentes pasaron la comprobación
+                    // con el mismo email, solo se importa la primera (menor ID) y las demás fallan
+                    Mono<Void> imported = usersRepository.findEmailOwners(emails).flatMap(owners -> {
+                        List<UserProvisioningTask> importable = new ArrayList<>(pending.size());
+                        List<Mono<Void>> duplicates = new ArrayList<>();
+                        for (UserProvisioningTask task : pending) {
+                            User user = users.get(task.getUserId());
+                            Integer owner = user.getEmail() != null ? owners.get(user.getEmail()) : null;
+                            if (owner != null && !owner.equals(user.getId())) {
+                                duplicates.add(fail(task, user, "El correo ya está registrado"));
+                            } else {
+                                importable.add(task);
+                            }
+                        }
+                        return Mono.when(duplicates).then(importBatch(importable, users));
+                    }).onErrorResume(e -> Flux.fromIterable(pending)
+                            .flatMap(task -> fail(task, users.get(task.getUserId()), e.getMessage()))
+                            .then());
+                    outcomes.add(imported);
+                    return Mono.when(outcomes);
+                });
+    }
+
+    private Mono<Void> importBatch(List<UserProvisioningTask> pending, Map<Integer, User> users) {
+        if (pending.isEmpty()) return Mono.empty();
+
+        List<User> pendingUsers = pending.stream().map(task -> users.get(task.getUserId())).collect(Collectors.toList());
+        // importUsers sobrescribe por UID: reintentar un lote ya importado es seguro
+        return identityProvider.importUsers(toImports(pending, pendingUsers))
+                .flatMap(errors -> Flux.range(0, pending.size())
+                        .flatMap(i -> errors.containsKey(i)
+                                ? fail(pending.get(i), pendingUsers.get(i), "Identidad: " + errors.get(i))
+                                : complete(pending.get(i), pendingUsers.get(i)), uploadConcurrency)
+                        .then())
+                .onErrorResume(e -> Flux.range(0, pending.size())
+                        .flatMap(i -> fail(pending.get(i), pendingUsers.get(i), e.getMessage()))
+                        .then());
+    }
+
+    /**
+     * Sube la imagen (si la hay) y, en una transacción, activa el usuario y borra su registro del outbox.
+     * La imagen se lee aquí y no al reclamar el lote: como mucho {@code upload-concurrency} en memoria.
+     */
+    private Mono<Void> complete(UserProvisioningTask task, User user) {
+        Mono<String> imageUrl = Boolean.TRUE.equals(task.getHasImage())
+                ? outboxRepository.findImageById(task.getId())
+                        .flatMap(stored -> supabaseStorageService.uploadProfileImage(stored.getImage(),
+                                stored.getImageContentType() != null ? MediaType.parseMediaType(stored.getImageContentType()) : null))
+                        .switchIfEmpty(Mono.error(new IllegalStateException("Registro del outbox eliminado")))
+                : Mono.just("");
+
+        return imageUrl
+                .flatMap(url -> usersRepository.activate(user.getId(), url)
+                        .flatMap(activated -> outboxRepository.deleteById(task.getId()).thenReturn(activated))
+                        .as(transactionalOperator::transactional)
+                        // El usuario se eliminó mientras se procesaba: no dejar la cuenta huérfana. La llamada
+                        // remota va fuera de la transacción (no retiene la conexión ni se deshace con un rollback)
+                        .switchIfEmpty(Mono.defer(() -> deleteFirebaseAccount(user)
+                                .then(Mono.error(new IllegalStateException("Usuario eliminado")))))
+                        .doOnNext(activated -> {
+                            UserDto active = UserDto.fromEntity(activated);
+                            userProfileCache.put(active);
+                            userChangeFeed.updated(active);
+                            count("completed");
+                            log.debug("Usuario {} aprovisionado tras {} intento(s)", user.getId(), task.getAttempts());
+                        }))
+                .then()
+                .onErrorResume(e -> fail(task, user, e.getMessage()));
+    }
+
+    private Mono<Void> fail(UserProvisioningTask task, User user, String error) {
+        String reason = truncate(error);
+        if (task.getAttempts() < maxAttempts) {
+            count("retried");
+            log.warn("Aprovisionamiento del usuario {} falló (intento {}/{}): {}", user.getId(), task.getAttempts(), maxAttempts, reason);
+            return outboxRepository.reschedule(task.getId(), reason, nextDelay(task.getAttempts()).toMillis()).then();
+        }
+
+        count("failed");
+        log.error("Aprovisionamiento del usuario {} abandonado tras {} intentos: {}", user.getId(), task.getAttempts(), reason);
+        // Compensación: la cuenta puede existir si falló un paso posterior a importUsers
+        return deleteFirebaseAccount(user)
+                .then(usersRepository.updateStatus(user.getId(), UserStatus.FAILED.name())
+                        .flatMap(updated -> outboxRepository.markFailed(task.getId(), reason).thenReturn(updated))
+                        .as(transactionalOperator::transactional))
+                // Vacío: el usuario se eliminó mientras tanto y ya se publicó su DELETED
+                .doOnNext(updated -> {
+                    UserDto failed = UserDto.fromEntity(updated);
+                    userProfileCache.put(failed);
+                    userChangeFeed.updated(failed);
+                })
+                .then();
+    }
+
+    private Mono<Void> deleteFirebaseAccount(User user) {
+        return identityProvider.deleteUser(user.getFirebaseUid())
+                .onErrorResume(e -> {
+                    log.debug("Sin cuenta que revertir para {}: {}", user.getFirebaseUid(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Backoff exponencial: backoff, 2·backoff, 4·backoff... hasta max-backoff.
+     */
+    private Duration nextDelay(int attempts) {
+        long multiplier = 1L << Math.min(Math.max(attempts - 1, 0), 20);
+        Duration delay = backoff.multipliedBy(multiplier);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("users.provisioning.tasks", "outcome", outcome).increment();
+    }
+
+    private static String truncate(String error) {
+        if (error == null) return "Error desconocido";
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static List<IdentityImport> toImports(List<UserProvisioningTask> tasks, List<User> users) {
+        List<IdentityImport> imports = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            User user = users.get(i);
+            String primaryRole = user.getRole() == null || user.getRole().isEmpty() ? "USER" : user.getRole().get(0);
+            imports.add(new IdentityImport(user.getFirebaseUid(), user.getEmail(),
+                    tasks.get(i).getFirebasePasswordHash(), primaryRole.toUpperCase(Locale.ROOT)));
+        }
+        return imports;
+    }
+
+    @Override
+    public void destroy() {
+        Disposable current = subscription;
+        if (current != null) current.dispose();
+    }
+}
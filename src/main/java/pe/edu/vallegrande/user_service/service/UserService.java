@@ -1,66 +1,94 @@
 package pe.edu.vallegrande.user_service.service;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.UserRecord.CreateRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.codec.multipart.FilePart;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.user_service.cache.EmailExistenceFilter;
+import pe.edu.vallegrande.user_service.cache.UserLookupCoalescer;
+import pe.edu.vallegrande.user_service.cache.UserProfileCache;
 import pe.edu.vallegrande.user_service.dto.UserCreateDto;
 import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.dto.UserField;
+import pe.edu.vallegrande.user_service.dto.UserPageDto;
+import pe.edu.vallegrande.user_service.dto.UserSearchPageDto;
+import pe.edu.vallegrande.user_service.identity.IdentityProvider;
 import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.model.UserStatus;
+import pe.edu.vallegrande.user_service.repository.SearchHit;
 import pe.edu.vallegrande.user_service.repository.UsersRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 public class UserService {
 
+    // Reintentos de changeEmail/changePassword cuando otra escritura se adelanta al guardar
+    private static final long CHANGE_RETRIES = 2;
+
     private final UsersRepository usersRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final SupabaseStorageService supabaseStorageService;
+    private final UserProfileCache userProfileCache;
+    private final UserLookupCoalescer userLookupCoalescer;
+    private final IdentityProvider identityProvider;
+    private final EmailExistenceFilter emailExistenceFilter;
+    private final PipelineObserver pipelineObserver;
+    private final UserChangeFeed userChangeFeed;
+    private final int searchMinLength;
 
     @Autowired
-    public UserService(UsersRepository usersRepository, PasswordEncoder passwordEncoder, SupabaseStorageService supabaseStorageService) {
+    public UserService(UsersRepository usersRepository, PasswordHashingService passwordHashingService,
+                       SupabaseStorageService supabaseStorageService, UserProfileCache userProfileCache,
+                       UserLookupCoalescer userLookupCoalescer, IdentityProvider identityProvider, EmailExistenceFilter emailExistenceFilter,
+                       PipelineObserver pipelineObserver, UserChangeFeed userChangeFeed,
+                       @Value("${users.search.min-length:3}") int searchMinLength) {
         this.usersRepository = usersRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.supabaseStorageService = supabaseStorageService;
+        this.userProfileCache = userProfileCache;
+        this.userLookupCoalescer = userLookupCoalescer;
+        this.identityProvider = identityProvider;
+        this.emailExistenceFilter = emailExistenceFilter;
+        this.pipelineObserver = pipelineObserver;
+        this.userChangeFeed = userChangeFeed;
+        this.searchMinLength = searchMinLength;
     }
 
     /**
      * Crear un nuevo usuario: registra en Firebase y luego en la base de datos.
      */
     public Mono<UserDto> createUser(UserCreateDto dto, FilePart image) {
-        return emailExists(dto.getEmail())
+        return pipelineObserver.pipeline("create", stage("emailExists", emailExists(dto.getEmail()))
                 .flatMap(exists -> {
                     if (exists) {
                         return Mono.error(new IllegalArgumentException("❌ El correo ya está registrado."));
                     }
 
-                    CreateRequest request = new CreateRequest()
-                            .setEmail(dto.getEmail())
-                            .setPassword(dto.getPassword())
-                            .setEmailVerified(false)
-                            .setDisabled(false);
-
-                    return Mono.fromCallable(() -> FirebaseAuth.getInstance().createUser(request))
-                            .flatMap(firebaseUser -> {
-                                String uid = firebaseUser.getUid();
+                    return stage("identity.createUser", identityProvider.createUser(dto.getEmail(), dto.getPassword()))
+                            .flatMap(uid -> {
                                 String primaryRole = dto.getRole().isEmpty() ? "USER" : dto.getRole().get(0);
-                                return Mono.fromCallable(() -> {
-                                    FirebaseAuth.getInstance().setCustomUserClaims(uid, Map.of("role", primaryRole.toUpperCase()));
-                                    return uid;
-                                });
+                                return stage("identity.setRole", identityProvider.setRole(uid, primaryRole.toUpperCase()).thenReturn(uid));
                             })
                             .flatMap(uid -> {
                                 Mono<String> uploadMono = image != null ?
-                                        supabaseStorageService.uploadImage(image) : Mono.just("");
+                                        stage("supabase.upload", supabaseStorageService.uploadProfileImage(image)) : Mono.just("");
 
-                                return uploadMono.flatMap(imageUrl -> {
+                                return Mono.zip(uploadMono, stage("password.hash", passwordHashingService.encode(dto.getPassword()))).flatMap(tuple -> {
+                                    String imageUrl = tuple.getT1();
                                     User user = new User();
                                     user.setFirebaseUid(uid);
                                     user.setName(dto.getName());
@@ -69,21 +97,28 @@ public class UserService {
                                     user.setDocumentNumber(dto.getDocumentNumber());
                                     user.setCellPhone(dto.getCellPhone());
                                     user.setEmail(dto.getEmail());
-                                    user.setPassword(passwordEncoder.encode(dto.getPassword()));
+                                    user.setPassword(tuple.getT2());
                                     user.setRole(dto.getRole());
                                     user.setProfileImage(imageUrl);
-                                    return usersRepository.save(user).map(this::toDto);
+                                    user.setStatus(UserStatus.ACTIVE);
+                                    return stage("db.save", usersRepository.save(user)).map(this::toDto)
+                                            .doOnNext(saved -> {
+                                                emailExistenceFilter.add(saved.getEmail());
+                                                userChangeFeed.created(saved);
+                                            });
                                 });
                             });
-                });
+                }));
     }
 
     /**
      * Actualiza datos de un usuario por ID, sin modificar email ni contraseña.
+     * Con {@code expectedVersion} (If-Match) falla con {@link VersionConflictException} si el usuario cambió.
      */
-    public Mono<UserDto> updateUser(Integer id, UserDto dto, FilePart newImage) {
-        return usersRepository.findById(id)
+    public Mono<UserDto> updateUser(Integer id, UserDto dto, FilePart newImage, Long expectedVersion) {
+        return pipelineObserver.pipeline("update", stage("db.find", usersRepository.findById(id))
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("Usuario no encontrado")))
+                .flatMap(existing -> checkVersion(existing, expectedVersion))
                 .flatMap(existing -> {
                     existing.setName(dto.getName());
                     existing.setLastName(dto.getLastName());
@@ -95,125 +130,247 @@ public class UserService {
                     Mono<String> imageMono = Mono.just(existing.getProfileImage());
 
                     if (newImage != null) {
-                        imageMono = supabaseStorageService.deleteImage(existing.getProfileImage())
-                                .then(supabaseStorageService.uploadImage(newImage));
+                        imageMono = stage("supabase.delete", supabaseStorageService.deleteImage(existing.getProfileImage()))
+                                .then(stage("supabase.upload", supabaseStorageService.uploadProfileImage(newImage)));
                     }
 
                     return imageMono.flatMap(imageUrl -> {
                         existing.setProfileImage(imageUrl);
-                        return usersRepository.save(existing).map(this::toDto);
+                        return stage("db.save", save(existing)).map(this::toDto)
+                                .doOnNext(saved -> {
+                                    userProfileCache.put(saved);
+                                    userChangeFeed.updated(saved);
+                                });
                     });
-                });
+                }));
     }
 
     /**
      * Devuelve los datos del usuario actual por su UID de Firebase.
      */
     public Mono<UserDto> findMyProfile(String firebaseUid) {
-        return usersRepository.findAll()
-                .filter(user -> firebaseUid.equals(user.getFirebaseUid()))
-                .next()
-                .map(this::toDto)
+        return userProfileCache.getByUid(firebaseUid, () -> loadByUid(firebaseUid, UserField.ALL_COLUMNS))
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")));
     }
 
+    /**
+     * Perfil del usuario actual con solo los campos pedidos.
+     */
+    public Mono<Map<String, Object>> findMyProfile(String firebaseUid, Set<UserField> fields) {
+        return userProfileCache.peekByUid(firebaseUid)
+                .switchIfEmpty(Mono.defer(() -> loadByUid(firebaseUid, UserField.columns(fields))))
+                .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
+                .map(user -> UserField.project(user, fields));
+    }
+
     /**
      * Devuelve todos los usuarios registrados.
      */
     public Flux<UserDto> findAllUsers() {
-        return usersRepository.findAll().map(this::toDto);
+        return usersRepository.streamAllOrderById(UserField.ALL_COLUMNS).map(this::toDto);
+    }
+
+    public Flux<Map<String, Object>> findAllUsers(Set<UserField> fields) {
+        return usersRepository.streamAllOrderById(UserField.columns(fields))
+                .map(user -> UserField.project(toDto(user), fields));
+    }
+
+    /**
+     * Devuelve una página de usuarios ordenada por ID a partir del cursor {@code after} (exclusivo).
+     */
+    public Mono<UserPageDto<UserDto>> findUsersPage(Integer after, int limit) {
+        return findUsersPage(after, limit, UserField.ALL_COLUMNS, user -> user);
+    }
+
+    public Mono<UserPageDto<Map<String, Object>>> findUsersPage(Integer after, int limit, Set<UserField> fields) {
+        return findUsersPage(after, limit, UserField.columns(fields), user -> UserField.project(user, fields));
+    }
+
+    /**
+     * Se pide una fila extra para saber si existe una página siguiente; el cursor es el ID de la última fila.
+     */
+    private <T> Mono<UserPageDto<T>> findUsersPage(Integer after, int limit, List<String> columns, Function<UserDto, T> mapper) {
+        return usersRepository.findPageAfter(after != null ? after : 0, limit + 1, columns)
+                .map(this::toDto)
+                .collectList()
+                .map(users -> {
+                    if (users.size() <= limit) {
+                        return new UserPageDto<>(users.stream().map(mapper).toList(), null);
+                    }
+                    List<UserDto> page = users.subList(0, limit);
+                    return new UserPageDto<>(page.stream().map(mapper).toList(), page.get(limit - 1).getId());
+                });
+    }
+
+    /**
+     * Busca usuarios por prefijo o de forma aproximada en nombre, apellidos, email y documento,
+     * ordenados por relevancia. {@code after} es el cursor {@code next} de la página anterior.
+     */
+    public Mono<UserSearchPageDto<Map<String, Object>>> searchUsers(String query, String after, int limit, Set<UserField> fields) {
+        String term = query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        if (term.length() < searchMinLength) {
+            return Mono.error(new IllegalArgumentException("❌ La búsqueda requiere al menos " + searchMinLength + " caracteres"));
+        }
+        Float afterDistance = null;
+        Integer afterId = null;
+        if (after != null && !after.isBlank()) {
+            String[] cursor = after.split("_", 2);
+            try {
+                afterDistance = Float.valueOf(cursor[0]);
+                afterId = Integer.valueOf(cursor[1]);
+            } catch (RuntimeException e) {
+                return Mono.error(new IllegalArgumentException("❌ Cursor de búsqueda inválido"));
+            }
+        }
+        return usersRepository.search(term, afterDistance, afterId, limit + 1, UserField.columns(fields))
+                .collectList()
+                .map(hits -> {
+                    List<SearchHit> page = hits.size() > limit ? hits.subList(0, limit) : hits;
+                    List<Map<String, Object>> items = page.stream()
+                            .map(hit -> UserField.project(toDto(hit.user()), fields))
+                            .toList();
+                    if (hits.size() <= limit) {
+                        return new UserSearchPageDto<>(items, null);
+                    }
+                    SearchHit last = page.get(limit - 1);
+                    return new UserSearchPageDto<>(items, last.distance() + "_" + last.user().getId());
+                });
+    }
+
+    /**
+     * Emite todos los usuarios ordenados por ID a medida que se leen de la base de datos.
+     */
+    public Flux<UserDto> streamAllUsers() {
+        return usersRepository.streamAllOrderById(UserField.ALL_COLUMNS).map(this::toDto);
     }
 
     /**
      * Devuelve un usuario por su ID.
      */
     public Mono<UserDto> findById(Integer id) {
-        return usersRepository.findById(id).map(this::toDto);
+        return userProfileCache.getById(id, () -> loadById(id, UserField.ALL_COLUMNS));
+    }
+
+    public Mono<Map<String, Object>> findById(Integer id, Set<UserField> fields) {
+        return userProfileCache.peekById(id)
+                .switchIfEmpty(Mono.defer(() -> loadById(id, UserField.columns(fields))))
+                .map(user -> UserField.project(user, fields));
     }
 
     /**
      * Devuelve un usuario por su email.
      */
     public Mono<UserDto> findByEmail(String email) {
-        return usersRepository.findByEmail(email).map(this::toDto);
+        return userProfileCache.getByEmail(email, () -> loadByEmail(email, UserField.ALL_COLUMNS));
+    }
+
+    public Mono<Map<String, Object>> findByEmail(String email, Set<UserField> fields) {
+        return userProfileCache.peekByEmail(email)
+                .switchIfEmpty(Mono.defer(() -> loadByEmail(email, UserField.columns(fields))))
+                .map(user -> UserField.project(user, fields));
     }
 
     /**
-     * Verifica si un email ya está registrado.
+     * Lecturas de la base de datos agrupadas: las peticiones concurrentes iguales comparten la consulta.
+     */
+    private Mono<UserDto> loadById(Integer id, List<String> columns) {
+        return userLookupCoalescer.findById(id, columns, () -> usersRepository.findById(id, columns).map(this::toDto));
+    }
+
+    private Mono<UserDto> loadByUid(String firebaseUid, List<String> columns) {
+        return userLookupCoalescer.findByUid(firebaseUid, columns, () -> usersRepository.findByFirebaseUid(firebaseUid, columns).map(this::toDto));
+    }
+
+    private Mono<UserDto> loadByEmail(String email, List<String> columns) {
+        return userLookupCoalescer.findByEmail(email, columns, () -> usersRepository.findByEmail(email, columns).map(this::toDto));
+    }
+
+    /**
+     * Verifica si un email ya está registrado. Solo consulta la base de datos si el filtro de emails
+     * no puede descartarlo.
      */
     public Mono<Boolean> emailExists(String email) {
-        return findByEmail(email).hasElement();
+        if (!emailExistenceFilter.mightContain(email)) {
+            return Mono.just(false);
+        }
+        return findByEmail(email).hasElement()
+                .doOnNext(exists -> {
+                    if (!exists) emailExistenceFilter.recordFalsePositive();
+                });
     }
 
     /**
      * Elimina un usuario por ID de Firebase y la base de datos.
      */
     public Mono<Void> deleteUser(Integer id) {
-        return usersRepository.findById(id)
+        return pipelineObserver.pipeline("delete", stage("db.find", usersRepository.findById(id))
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
                 .flatMap(user -> {
                     String firebaseUid = user.getFirebaseUid();
-                    Mono<Void> firebaseDeletion = Mono.fromCallable(() -> {
-                        FirebaseAuth.getInstance().deleteUser(firebaseUid);
-                        return null;
-                    });
-                    Mono<Void> dbDeletion = usersRepository.deleteById(user.getId());
+                    Mono<Void> firebaseDeletion = stage("identity.deleteUser", identityProvider.deleteUser(firebaseUid));
+                    // Sin aprovisionar (outbox) la cuenta de Firebase puede no existir todavía o haberse revertido
+                    if (user.getStatus() == UserStatus.PENDING || user.getStatus() == UserStatus.FAILED) {
+                        firebaseDeletion = firebaseDeletion.onErrorResume(e -> Mono.empty());
+                    }
+                    Mono<Void> dbDeletion = stage("db.delete", usersRepository.deleteById(user.getId()))
+                            .doOnSuccess(v -> {
+                                UserDto deleted = toDto(user);
+                                userProfileCache.evict(deleted);
+                                userChangeFeed.deleted(deleted);
+                            });
                     return firebaseDeletion.then(dbDeletion);
-                });
+                }));
     }
 
     /**
      * Cambia el email del usuario en Firebase y en la base de datos.
      */
     public Mono<UserDto> changeEmail(String firebaseUid, String newEmail) {
-        return usersRepository.findAll()
-                .filter(user -> firebaseUid.equals(user.getFirebaseUid()))
-                .next()
+        return pipelineObserver.pipeline("changeEmail", stage("db.find", usersRepository.findByFirebaseUid(firebaseUid))
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
-                .flatMap(user -> usersRepository.findByEmail(newEmail)
+                .flatMap(user -> stage("emailExists", emailExists(newEmail))
+                        .filter(exists -> exists)
                         .flatMap(conflict -> Mono.<User>error(new RuntimeException("El correo ya está en uso")))
                         .switchIfEmpty(Mono.defer(() -> {
-                            return Mono.fromCallable(() -> {
-                                FirebaseAuth.getInstance().updateUser(
-                                        new com.google.firebase.auth.UserRecord.UpdateRequest(firebaseUid)
-                                                .setEmail(newEmail)
-                                );
-                                return user;
-                            });
+                            return stage("identity.updateEmail", identityProvider.updateEmail(firebaseUid, newEmail).thenReturn(user));
                         })))
                 .flatMap(updatedUser -> {
-                    updatedUser.setEmail(newEmail);
-                    return usersRepository.save(updatedUser).map(this::toDto);
-                });
+                    AtomicReference<String> previousEmail = new AtomicReference<>();
+                    return stage("db.save", saveChange(updatedUser, current -> {
+                                previousEmail.set(current.getEmail());
+                                current.setEmail(newEmail);
+                            }))
+                            .map(this::toDto)
+                            .doOnNext(saved -> {
+                                userProfileCache.evictEmail(previousEmail.get());
+                                userProfileCache.put(saved);
+                                emailExistenceFilter.add(saved.getEmail());
+                                userChangeFeed.emailChanged(saved, previousEmail.get());
+                            });
+                }));
     }
 
     /**
      * Cambia la contraseña en Firebase y la actualiza en la base de datos.
      */
     public Mono<UserDto> changePassword(String firebaseUid, String newPassword) {
-        return usersRepository.findAll()
-                .filter(user -> firebaseUid.equals(user.getFirebaseUid()))
-                .next()
+        return pipelineObserver.pipeline("changePassword", stage("db.find", usersRepository.findByFirebaseUid(firebaseUid))
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
-                .flatMap(user -> Mono.fromCallable(() -> {
-                    FirebaseAuth.getInstance().updateUser(
-                            new com.google.firebase.auth.UserRecord.UpdateRequest(firebaseUid)
-                                    .setPassword(newPassword)
-                    );
-                    return user;
-                }))
-                .flatMap(user -> {
-                    user.setPassword(passwordEncoder.encode(newPassword));
-                    return usersRepository.save(user).map(this::toDto);
-                });
+                .flatMap(user -> stage("identity.updatePassword", identityProvider.updatePassword(firebaseUid, newPassword).thenReturn(user)))
+                .flatMap(user -> stage("password.hash", passwordHashingService.encode(newPassword))
+                        .flatMap(hash -> stage("db.save", saveChange(user, current -> current.setPassword(hash))))
+                        .map(this::toDto)
+                        .doOnNext(userProfileCache::put)));
     }
 
     /**
      * Permite al usuario editar su propio perfil sin cambiar email, password ni rol.
+     * Con {@code expectedVersion} (If-Match) falla con {@link VersionConflictException} si el perfil cambió.
      */
-    public Mono<UserDto> updateMyProfile(String uid, UserDto updatedData) {
+    public Mono<UserDto> updateMyProfile(String uid, UserDto updatedData, Long expectedVersion) {
         return usersRepository.findByFirebaseUid(uid)
                 .switchIfEmpty(Mono.error(new RuntimeException("Usuario no encontrado")))
+                .flatMap(existing -> checkVersion(existing, expectedVersion))
                 .flatMap(existing -> {
                     existing.setName(updatedData.getName());
                     existing.setLastName(updatedData.getLastName());
@@ -221,15 +378,57 @@ public class UserService {
                     existing.setDocumentNumber(updatedData.getDocumentNumber());
                     existing.setCellPhone(updatedData.getCellPhone());
                     existing.setProfileImage(updatedData.getProfileImage());
-                    return usersRepository.save(existing);
+                    return save(existing);
+                })
+                .map(UserDto::fromEntity)
+                .doOnNext(saved -> {
+                    userProfileCache.put(saved);
+                    userChangeFeed.updated(saved);
+                });
+    }
+
+    private static Mono<User> checkVersion(User user, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            return Mono.error(new VersionConflictException(user.getId()));
+        }
+        return Mono.just(user);
+    }
+
+    /**
+     * save() con @Version: si otra escritura se adelantó entre la lectura y el UPDATE, es un conflicto de versión.
+     */
+    private Mono<User> save(User user) {
+        return usersRepository.save(user)
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new VersionConflictException(user.getId()));
+    }
+
+    /**
+     * Aplica {@code change} y guarda. El proveedor de identidades ya tiene el cambio, así que si otra escritura
+     * se adelantó no se descarta: se relee la fila y se vuelve a aplicar, hasta {@value #CHANGE_RETRIES} veces;
+     * después, {@link VersionConflictException}.
+     */
+    private Mono<User> saveChange(User loaded, Consumer<User> change) {
+        AtomicBoolean reload = new AtomicBoolean();
+        return Mono.defer(() -> reload.getAndSet(true) ? usersRepository.findById(loaded.getId()) : Mono.just(loaded))
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Usuario no encontrado")))
+                .flatMap(current -> {
+                    change.accept(current);
+                    return usersRepository.save(current);
                 })
-                .map(UserDto::fromEntity);
+                .retryWhen(Retry.max(CHANGE_RETRIES)
+                        .filter(OptimisticLockingFailureException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new VersionConflictException(loaded.getId()));
+    }
+
+    private <T> Mono<T> stage(String stage, Mono<T> body) {
+        return pipelineObserver.stage(stage, body);
     }
 
     /**
      * Convierte la entidad User a UserDto
      */
-    private UserDto toDto(User user) {
+    UserDto toDto(User user) {
         return new UserDto(
                 user.getId(),
                 user.getFirebaseUid(),
@@ -240,7 +439,9 @@ public class UserService {
                 user.getCellPhone(),
                 user.getEmail(),
                 user.getRole(),
-                user.getProfileImage()
+                user.getProfileImage(),
+                user.getStatus(),
+                user.getVersion()
         );
     }
 }
@@ -0,0 +1,16 @@
+package pe.edu.vallegrande.user_service.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * La versión indicada en {@code If-Match} ya no es la actual, o el guardado chocó repetidamente con otras
+ * escrituras: otro cliente modificó el usuario. Con If-Match se responde 412 ({@code UserETags}); si no, 409.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class VersionConflictException extends RuntimeException {
+
+    public VersionConflictException(Integer userId) {
+        super("❌ El usuario " + userId + " fue modificado por otra petición; vuelva a leerlo");
+    }
+}
@@ -0,0 +1,13 @@
+-- Índice único sobre firebase_uid: /api/users/me y todas las operaciones por UID
+-- resuelven el usuario con un index scan en lugar de recorrer la tabla completa.
+-- CONCURRENTLY evita bloquear escrituras mientras se construye en tablas grandes.
+-- Un CONCURRENTLY fallido (p. ej. por duplicados) deja el índice INVALID y IF NOT EXISTS lo daría por creado:
+-- se elimina para que el reintento lo construya de nuevo
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE c.relname = ''ux_users_firebase_uid'' AND NOT i.indisvalid) THEN
+        DROP INDEX ux_users_firebase_uid;
+    END IF;
+END';
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ux_users_firebase_uid ON users (firebase_uid);
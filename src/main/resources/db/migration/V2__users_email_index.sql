@@ -0,0 +1,11 @@
+-- Búsqueda por email (emailExists, findByEmail, cambio de email) sin recorrer la tabla
+-- Un CONCURRENTLY fallido (p. ej. por duplicados) deja el índice INVALID y IF NOT EXISTS lo daría por creado:
+-- se elimina para que el reintento lo construya de nuevo
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE c.relname = ''ix_users_email'' AND NOT i.indisvalid) THEN
+        DROP INDEX ix_users_email;
+    END IF;
+END';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_users_email ON users (email);
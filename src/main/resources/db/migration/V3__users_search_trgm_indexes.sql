@@ -0,0 +1,21 @@
+-- Búsqueda de usuarios (/api/admin/users/search): coincidencia por prefijo y aproximada (trigramas)
+-- sobre nombre, apellidos, email y número de documento, concatenados en una sola expresión.
+-- El índice GiST permite filtrar con <% (word_similarity) y devolver las filas ya ordenadas por la
+-- distancia <<-> (búsqueda KNN), sin ordenar todas las coincidencias; la segunda columna (id como
+-- float8, por btree_gist) desempata dentro del mismo índice para la paginación por cursor.
+-- Requiere permiso para crear pg_trgm y btree_gist (incluidas en PostgreSQL y disponibles en Supabase).
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+-- Un CONCURRENTLY fallido (p. ej. por duplicados) deja el índice INVALID y IF NOT EXISTS lo daría por creado:
+-- se elimina para que el reintento lo construya de nuevo
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+               WHERE c.relname = ''ix_users_search_trgm'' AND NOT i.indisvalid) THEN
+        DROP INDEX ix_users_search_trgm;
+    END IF;
+END';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS ix_users_search_trgm ON users USING gist (
+    (lower(coalesce(name, '') || ' ' || coalesce(last_name, '') || ' ' || coalesce(email, '') || ' ' || coalesce(document_number, ''))) gist_trgm_ops(siglen=256),
+    ((id)::float8)
+);
@@ -0,0 +1,23 @@
+-- Aprovisionamiento asíncrono (users.provisioning): la petición inserta el usuario en estado PENDING
+-- y su registro de outbox en la misma transacción; UserProvisioningWorker crea la cuenta en Firebase,
+-- sube la imagen y lo pasa a ACTIVE. Las filas existentes quedan ACTIVE (ADD COLUMN con DEFAULT no reescribe la tabla).
+-- ALTER TABLE espera un lock exclusivo sobre users y mientras espera bloquea a las consultas que llegan detrás:
+-- si no lo obtiene pronto, la migración falla (y se reintenta en el siguiente arranque) en lugar de parar el tráfico
+SET LOCAL lock_timeout = '5s';
+ALTER TABLE users ADD COLUMN IF NOT EXISTS status varchar(20) NOT NULL DEFAULT 'ACTIVE';
+CREATE TABLE IF NOT EXISTS user_provisioning_outbox (
+    id bigserial PRIMARY KEY,
+    user_id integer NOT NULL UNIQUE REFERENCES users (id) ON DELETE CASCADE,
+    firebase_password_hash text NOT NULL,
+    image bytea,
+    image_content_type varchar(100),
+    attempts integer NOT NULL DEFAULT 0,
+    next_attempt_at timestamptz NOT NULL DEFAULT now(),
+    last_error text,
+    -- Reintentos agotados: el registro se conserva para consultar el error, pero no se vuelve a reclamar
+    failed_at timestamptz,
+    created_at timestamptz NOT NULL DEFAULT now()
+);
+-- Los workers reclaman los registros vencidos con FOR UPDATE SKIP LOCKED en este orden
+CREATE INDEX IF NOT EXISTS ix_user_provisioning_outbox_next_attempt ON user_provisioning_outbox (next_attempt_at)
+    WHERE failed_at IS NULL;
@@ -0,0 +1,7 @@
+-- Versión de cada fila para ETags (GET /api/users/me, /api/admin/users/{id}) y concurrencia optimista
+-- (If-Match en las actualizaciones). Spring Data la incrementa en cada save(); las sentencias UPDATE
+-- escritas a mano (rol por lotes, aprovisionamiento) la incrementan explícitamente.
+-- ALTER TABLE espera un lock exclusivo sobre users y mientras espera bloquea a las consultas que llegan detrás:
+-- si no lo obtiene pronto, la migración falla (y se reintenta en el siguiente arranque) en lugar de parar el tráfico
+SET LOCAL lock_timeout = '5s';
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,26 @@
+-- Coherencia de cachés entre réplicas (UserCacheCoherence): cada alta, cambio o borrado en users notifica
+-- en el canal users_cache al confirmarse la transacción. Carga útil separada por tabuladores:
+--   application_name de quien escribe, operación (I/U/D), id, firebase_uid, email, email anterior
+CREATE OR REPLACE FUNCTION users_cache_notify() RETURNS trigger LANGUAGE plpgsql AS '
+BEGIN
+    IF TG_OP = ''DELETE'' THEN
+        PERFORM pg_notify(''users_cache'', concat_ws(chr(9), current_setting(''application_name''), ''D'',
+                OLD.id, coalesce(OLD.firebase_uid, ''''), coalesce(OLD.email, ''''), ''''));
+        RETURN OLD;
+    END IF;
+    IF TG_OP = ''UPDATE'' AND OLD IS NOT DISTINCT FROM NEW THEN
+        RETURN NEW;
+    END IF;
+    PERFORM pg_notify(''users_cache'', concat_ws(chr(9), current_setting(''application_name''), left(TG_OP, 1),
+            NEW.id, coalesce(NEW.firebase_uid, ''''), coalesce(NEW.email, ''''),
+            CASE WHEN TG_OP = ''UPDATE'' AND OLD.email IS DISTINCT FROM NEW.email THEN coalesce(OLD.email, '''') ELSE '''' END));
+    RETURN NEW;
+END';
+-- Sin CREATE OR REPLACE TRIGGER (PostgreSQL 14+): se crea solo si no existe
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = ''users_cache_notify'' AND tgrelid = ''users''::regclass) THEN
+        CREATE TRIGGER users_cache_notify AFTER INSERT OR UPDATE OR DELETE ON users
+            FOR EACH ROW EXECUTE FUNCTION users_cache_notify();
+    END IF;
+END';
@@ -0,0 +1,20 @@
+-- Añade la versión de la fila a la carga útil de users_cache (V6), para que las réplicas publiquen en su feed
+-- de cambios (UserChangeFeed) las escrituras de las demás con la misma versión que verían al leer.
+-- El campo va al final: quien solo lee los seis primeros sigue funcionando durante el despliegue.
+--   application_name de quien escribe, operación (I/U/D), id, firebase_uid, email, email anterior, versión
+CREATE OR REPLACE FUNCTION users_cache_notify() RETURNS trigger LANGUAGE plpgsql AS '
+BEGIN
+    IF TG_OP = ''DELETE'' THEN
+        PERFORM pg_notify(''users_cache'', concat_ws(chr(9), current_setting(''application_name''), ''D'',
+                OLD.id, coalesce(OLD.firebase_uid, ''''), coalesce(OLD.email, ''''), '''', OLD.version));
+        RETURN OLD;
+    END IF;
+    IF TG_OP = ''UPDATE'' AND OLD IS NOT DISTINCT FROM NEW THEN
+        RETURN NEW;
+    END IF;
+    PERFORM pg_notify(''users_cache'', concat_ws(chr(9), current_setting(''application_name''), left(TG_OP, 1),
+            NEW.id, coalesce(NEW.firebase_uid, ''''), coalesce(NEW.email, ''''),
+            CASE WHEN TG_OP = ''UPDATE'' AND OLD.email IS DISTINCT FROM NEW.email THEN coalesce(OLD.email, '''') ELSE '''' END,
+            NEW.version));
+    RETURN NEW;
+END';
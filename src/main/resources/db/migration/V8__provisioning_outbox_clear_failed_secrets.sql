@@ -0,0 +1,8 @@
+-- Un registro FAILED se conserva para consultar el error, pero ya no se reintenta: no necesita el hash de
+-- la contraseña ni la imagen. markFailed los vacía; aquí se vacían también los registros fallidos existentes.
+-- ALTER TABLE espera un lock exclusivo sobre el outbox; si no lo obtiene pronto, la migración falla (y se
+-- reintenta en el siguiente arranque) en lugar de detener a los workers
+SET LOCAL lock_timeout = '5s';
+ALTER TABLE user_provisioning_outbox ALTER COLUMN firebase_password_hash DROP NOT NULL;
+UPDATE user_provisioning_outbox SET firebase_password_hash = NULL, image = NULL
+    WHERE failed_at IS NOT NULL AND (firebase_password_hash IS NOT NULL OR image IS NOT NULL);
@@ -0,0 +1,52 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void neverReportsAnInsertedValueAsAbsent() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("user" + i + "@vallegrande.edu.pe");
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@vallegrande.edu.pe"), "user" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("user" + i + "@vallegrande.edu.pe");
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) falsePositives++;
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "tasa de falsos positivos " + rate);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02, "fpp estimada " + filter.expectedFalsePositiveRate());
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+
+        assertFalse(filter.mightContain("a@b.c"));
+        assertEquals(0, filter.approximateElementCount());
+    }
+
+    @Test
+    void repeatedInsertIsCountedOnce() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+        filter.put("a@b.c");
+        filter.put("a@b.c");
+
+        assertEquals(1, filter.approximateElementCount());
+    }
+}
@@ -0,0 +1,108 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.user_service.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmailExistenceFilterTest {
+
+    private final UsersRepository usersRepository = mock(UsersRepository.class);
+    private EmailExistenceFilter filter;
+
+    @AfterEach
+    void tearDown() {
+        if (filter != null) filter.destroy();
+    }
+
+    @Test
+    void answersPossibleUntilTheFirstBuild() {
+        filter = filter(true);
+        filter.start();
+
+        assertTrue(filter.mightContain("nadie@vallegrande.edu.pe"));
+    }
+
+    @Test
+    void buildsFromTheTableWhenListeningStarts() {
+        existingEmails("Ana@VALLEGRANDE.edu.pe", "luis@vallegrande.edu.pe");
+        filter = filter(true);
+        filter.start();
+
+        filter.resync();
+
+        assertTrue(filter.mightContain(" ana@vallegrande.edu.pe "));
+        assertTrue(filter.mightContain("LUIS@vallegrande.edu.pe"));
+        assertFalse(filter.mightContain("nadie@vallegrande.edu.pe"));
+    }
+
+    @Test
+    void keepsEmailsAddedAfterTheBuild() {
+        existingEmails("ana@vallegrande.edu.pe");
+        filter = filter(true);
+        filter.start();
+        filter.resync();
+
+        filter.add("nuevo@vallegrande.edu.pe");
+
+        assertTrue(filter.mightContain("nuevo@vallegrande.edu.pe"));
+    }
+
+    @Test
+    void keepsEmailsAddedWhileTheTableIsBeingRead() {
+        when(usersRepository.count()).thenReturn(Mono.just(1L));
+        when(usersRepository.streamAllEmails()).thenReturn(Flux.defer(() -> {
+            // Alta notificada por otra réplica a mitad de la lectura
+            filter.add("concurrente@vallegrande.edu.pe");
+            return Flux.just("ana@vallegrande.edu.pe");
+        }));
+        filter = filter(true);
+        filter.start();
+
+        filter.resync();
+
+        assertTrue(filter.mightContain("concurrente@vallegrande.edu.pe"));
+    }
+
+    @Test
+    void answersPossibleWhileTheCoherenceChannelIsDown() {
+        existingEmails("ana@vallegrande.edu.pe");
+        filter = filter(true);
+        filter.start();
+        filter.resync();
+
+        filter.suspend();
+
+        assertTrue(filter.mightContain("nadie@vallegrande.edu.pe"));
+    }
+
+    @Test
+    void staysDisabledWithoutCrossReplicaCoherence() {
+        existingEmails("ana@vallegrande.edu.pe");
+        filter = filter(false);
+        filter.start();
+
+        filter.resync();
+
+        assertTrue(filter.mightContain("nadie@vallegrande.edu.pe"));
+    }
+
+    private void existingEmails(String... emails) {
+        when(usersRepository.count()).thenReturn(Mono.just((long) emails.length));
+        when(usersRepository.streamAllEmails()).thenReturn(Flux.just(emails));
+    }
+
+    private EmailExistenceFilter filter(boolean coherenceEnabled) {
+        return new EmailExistenceFilter(usersRepository, new SimpleMeterRegistry(), 1_000, 0.01,
+                Duration.ofHours(6), coherenceEnabled);
+    }
+}
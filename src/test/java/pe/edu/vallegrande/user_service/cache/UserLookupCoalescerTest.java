@@ -0,0 +1,135 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UserLookupCoalescerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final List<String> COLUMNS = List.of("id", "name");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserProfileCache userProfileCache = new UserProfileCache(100, Duration.ofMinutes(5), meterRegistry);
+    private final UserLookupCoalescer coalescer = new UserLookupCoalescer(userProfileCache, meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void concurrentLookupsShareOneQuery() {
+        Sinks.One<UserDto> query = Sinks.one();
+        UserDto user = user(1);
+
+        Mono<UserDto> first = coalescer.findById(1, COLUMNS, loader(query)).cache();
+        Mono<UserDto> second = coalescer.findById(1, COLUMNS, loader(query)).cache();
+        first.subscribe();
+        second.subscribe();
+        query.tryEmitValue(user);
+
+        assertSame(user, first.block(TIMEOUT));
+        assertSame(user, second.block(TIMEOUT));
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("users.lookups.coalesced").tag("lookup", "id").counter().count());
+    }
+
+    @Test
+    void differentColumnsUseSeparateQueries() {
+        Sinks.One<UserDto> query = Sinks.one();
+
+        coalescer.findByUid("uid-1", COLUMNS, loader(query)).subscribe();
+        coalescer.findByUid("uid-1", List.of("id"), loader(query)).subscribe();
+        query.tryEmitValue(user(1));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void aFinishedQueryIsNotReused() {
+        coalescer.findByEmail("ana@vallegrande.edu.pe", COLUMNS, () -> load(Mono.just(user(1)))).block(TIMEOUT);
+        coalescer.findByEmail("ana@vallegrande.edu.pe", COLUMNS, () -> load(Mono.just(user(1)))).block(TIMEOUT);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void aCancelledLookupDoesNotCancelTheSharedQuery() {
+        Sinks.One<UserDto> query = Sinks.one();
+        UserDto user = user(1);
+
+        Disposable cancelled = coalescer.findById(1, COLUMNS, loader(query)).subscribe();
+        Mono<UserDto> kept = coalescer.findById(1, COLUMNS, loader(query)).cache();
+        kept.subscribe();
+        cancelled.dispose();
+        query.tryEmitValue(user);
+
+        assertSame(user, kept.block(TIMEOUT));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void errorsReachEverySharerAndTheNextLookupRetries() {
+        Sinks.One<UserDto> query = Sinks.one();
+
+        Mono<UserDto> first = coalescer.findById(1, COLUMNS, loader(query)).cache();
+        Mono<UserDto> second = coalescer.findById(1, COLUMNS, loader(query)).cache();
+        first.subscribe(v -> { }, e -> { });
+        second.subscribe(v -> { }, e -> { });
+        query.tryEmitError(new IllegalStateException("conexión perdida"));
+
+        StepVerifier.create(first).expectErrorMessage("conexión perdida").verify(TIMEOUT);
+        StepVerifier.create(second).expectErrorMessage("conexión perdida").verify(TIMEOUT);
+
+        UserDto user = user(1);
+        assertSame(user, coalescer.findById(1, COLUMNS, () -> load(Mono.just(user))).block(TIMEOUT));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void aLookupAfterAWriteDoesNotJoinAnOlderQuery() {
+        Sinks.One<UserDto> before = Sinks.one();
+        Sinks.One<UserDto> after = Sinks.one();
+
+        Mono<UserDto> stale = coalescer.findById(1, COLUMNS, loader(before)).cache();
+        stale.subscribe();
+        userProfileCache.put(user(1));
+        Mono<UserDto> fresh = coalescer.findById(1, COLUMNS, loader(after)).cache();
+        fresh.subscribe();
+        UserDto updated = user(1);
+        after.tryEmitValue(updated);
+        before.tryEmitValue(user(1));
+
+        assertSame(updated, fresh.block(TIMEOUT));
+        assertEquals(2, loads.get());
+    }
+
+    private Supplier<Mono<UserDto>> loader(Sinks.One<UserDto> query) {
+        return () -> load(query.asMono());
+    }
+
+    private Mono<UserDto> load(Mono<UserDto> result) {
+        return Mono.defer(() -> {
+            loads.incrementAndGet();
+            return result;
+        });
+    }
+
+    private static UserDto user(int id) {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setFirebaseUid("uid-" + id);
+        user.setEmail("user" + id + "@vallegrande.edu.pe");
+        user.setVersion(0L);
+        return user;
+    }
+}
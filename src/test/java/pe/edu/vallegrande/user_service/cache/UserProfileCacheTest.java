@@ -0,0 +1,67 @@
+package pe.edu.vallegrande.user_service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserProfileCacheTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void registersLoadedProfileUnderItsOtherKeys() {
+        UserProfileCache cache = new UserProfileCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+        cache.getById(1, () -> Mono.just(user(1L))).block(TIMEOUT);
+
+        assertEquals(1L, cache.peekByUid("uid-1").block(TIMEOUT).getVersion());
+        assertEquals(1L, cache.peekByEmail("ana@vallegrande.edu.pe").block(TIMEOUT).getVersion());
+    }
+
+    @Test
+    void loadFinishingAfterAPutDoesNotOverwriteItsAliases() {
+        UserProfileCache cache = new UserProfileCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        Sinks.One<UserDto> load = Sinks.one();
+        Mono<UserDto> reading = cache.getById(1, load::asMono).cache();
+        reading.subscribe();
+
+        // Escritura concurrente: la versión 2 queda bajo todas las claves antes de que termine la lectura de la 1
+        cache.put(user(2L));
+        load.tryEmitValue(user(1L));
+
+        assertEquals(1L, reading.block(TIMEOUT).getVersion());
+        assertEquals(2L, cache.peekByUid("uid-1").block(TIMEOUT).getVersion());
+        assertEquals(2L, cache.peekByEmail("ana@vallegrande.edu.pe").block(TIMEOUT).getVersion());
+        assertEquals(2L, cache.peekById(1).block(TIMEOUT).getVersion());
+    }
+
+    @Test
+    void loadFinishingAfterAnEvictionDoesNotRegisterAliases() {
+        UserProfileCache cache = new UserProfileCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        Sinks.One<UserDto> load = Sinks.one();
+        Mono<UserDto> reading = cache.getById(1, load::asMono).cache();
+        reading.subscribe();
+
+        cache.evict(1, "uid-1", "ana@vallegrande.edu.pe");
+        load.tryEmitValue(user(1L));
+
+        assertEquals(1L, reading.block(TIMEOUT).getVersion());
+        assertNull(cache.peekByUid("uid-1").block(TIMEOUT));
+    }
+
+    private static UserDto user(long version) {
+        UserDto user = new UserDto();
+        user.setId(1);
+        user.setFirebaseUid("uid-1");
+        user.setEmail("ana@vallegrande.edu.pe");
+        user.setVersion(version);
+        return user;
+    }
+}
@@ -0,0 +1,87 @@
+package pe.edu.vallegrande.user_service.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    // 5 fichas cada 5 s: una ficha por segundo
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long START = 1_000 * SECOND;
+
+    @Test
+    void allowsFullBurstThenReportsWaitUntilNextToken() {
+        TokenBucket bucket = new TokenBucket(5, Duration.ofSeconds(5), START);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryConsume(START), "ficha " + i);
+        }
+        assertEquals(SECOND, bucket.tryConsume(START));
+        assertEquals(SECOND / 2, bucket.tryConsume(START + SECOND / 2));
+    }
+
+    @Test
+    void refillsOneTokenPerEmissionInterval() {
+        TokenBucket bucket = new TokenBucket(5, Duration.ofSeconds(5), START);
+        for (int i = 0; i < 5; i++) bucket.tryConsume(START);
+
+        assertEquals(0, bucket.tryConsume(START + SECOND));
+        assertTrue(bucket.tryConsume(START + SECOND) > 0);
+        assertEquals(0, bucket.tryConsume(START + 3 * SECOND));
+        assertEquals(0, bucket.tryConsume(START + 3 * SECOND));
+        assertTrue(bucket.tryConsume(START + 3 * SECOND) > 0);
+    }
+
+    @Test
+    void idleTimeDoesNotAccumulateBeyondCapacity() {
+        TokenBucket bucket = new TokenBucket(5, Duration.ofSeconds(5), START);
+        long later = START + 3_600 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryConsume(later));
+        }
+        assertEquals(SECOND, bucket.tryConsume(later));
+    }
+
+    @Test
+    void concurrentConsumersNeverExceedCapacity() throws Exception {
+        int capacity = 100;
+        TokenBucket bucket = new TokenBucket(capacity, Duration.ofMinutes(1), START);
+        int threads = 8;
+        int attemptsPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> granted = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Callable<Integer> consumer = () -> {
+                    go.await();
+                    int count = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (bucket.tryConsume(START) == 0) count++;
+                    }
+                    return count;
+                };
+                granted.add(executor.submit(consumer));
+            }
+            go.countDown();
+            int total = 0;
+            for (Future<Integer> future : granted) total += future.get(10, TimeUnit.SECONDS);
+            assertEquals(capacity, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
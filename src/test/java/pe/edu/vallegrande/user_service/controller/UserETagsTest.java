@@ -0,0 +1,77 @@
+package pe.edu.vallegrande.user_service.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import pe.edu.vallegrande.user_service.service.VersionConflictException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserETagsTest {
+
+    @Test
+    void noPreconditionWithoutHeaderOrWithWildcard() {
+        assertNull(UserETags.expectedVersion(null, 7));
+        assertNull(UserETags.expectedVersion("  ", 7));
+        assertNull(UserETags.expectedVersion(" * ", 7));
+    }
+
+    @Test
+    void readsTheVersionOfTheSameUser() {
+        assertEquals(3L, UserETags.expectedVersion("\"7-3\"", 7));
+        assertEquals(3L, UserETags.expectedVersion("  \"7-3\" ", 7));
+    }
+
+    @Test
+    void roundTripsTheETagItServes() {
+        UserDto user = new UserDto();
+        user.setId(42);
+        user.setVersion(5L);
+
+        assertEquals(5L, UserETags.expectedVersion(UserETags.of(user), 42));
+    }
+
+    @Test
+    void anETagOfAnotherUserNeverMatches() {
+        assertEquals(-1L, UserETags.expectedVersion("\"8-3\"", 7));
+    }
+
+    @Test
+    void weakOrMalformedETagsNeverMatch() {
+        assertEquals(-1L, UserETags.expectedVersion("W/\"7-3\"", 7));
+        assertEquals(-1L, UserETags.expectedVersion("7-3", 7));
+        assertEquals(-1L, UserETags.expectedVersion("\"", 7));
+        assertEquals(-1L, UserETags.expectedVersion("\"73\"", 7));
+        assertEquals(-1L, UserETags.expectedVersion("\"-3\"", 7));
+        assertEquals(-1L, UserETags.expectedVersion("\"7-x\"", 7));
+        assertEquals(-1L, UserETags.expectedVersion("\"x-3\"", 7));
+    }
+
+    @Test
+    void withoutUserIdOnlyTheVersionIsRead() {
+        assertEquals(3L, UserETags.expectedVersion("\"8-3\"", null));
+    }
+
+    @Test
+    void conditionalConflictsBecomePreconditionFailed() {
+        Mono<ResponseEntity<UserDto>> conflict = Mono.error(new VersionConflictException(7));
+
+        StepVerifier.create(UserETags.preconditionFailed(3L, conflict))
+                .assertNext(response -> assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    void unconditionalConflictsKeepTheirStatus() {
+        // Sin If-Match no hay precondición que falle: el @ResponseStatus de la excepción responde 409
+        Mono<ResponseEntity<UserDto>> conflict = Mono.error(new VersionConflictException(7));
+
+        StepVerifier.create(UserETags.preconditionFailed(null, conflict))
+                .expectError(VersionConflictException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,151 @@
+package pe.edu.vallegrande.user_service.identity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CoalescerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<String> flushedKeys = new CopyOnWriteArrayList<>();
+    private final List<List<String>> flushedItems = new CopyOnWriteArrayList<>();
+    // Una llamada por flush, pendiente hasta que el test la completa
+    private final List<Sinks.One<Map<Integer, String>>> calls = new CopyOnWriteArrayList<>();
+
+    @Test
+    void anIsolatedRequestIsSentWithoutWaiting() {
+        Coalescer<String, String> coalescer = coalescer(true, 100);
+
+        Mono<Void> request = coalescer.submit("uid-1", "a").cache();
+        request.subscribe();
+
+        assertEquals(List.of(List.of("a")), flushedItems);
+        complete(0, Map.of());
+        request.block(TIMEOUT);
+    }
+
+    @Test
+    void groupsTheRequestsThatArriveWhileACallIsInFlight() {
+        Coalescer<String, String> coalescer = coalescer(true, 100);
+
+        Mono<Void> all = Mono.when(coalescer.submit("uid-1", "a"), coalescer.submit("uid-1", "b"), coalescer.submit("uid-1", "c"))
+                .cache();
+        all.subscribe();
+        assertEquals(List.of(List.of("a")), flushedItems);
+
+        complete(0, Map.of());
+        assertEquals(List.of(List.of("a"), List.of("b", "c")), flushedItems);
+        complete(1, Map.of());
+        all.block(TIMEOUT);
+    }
+
+    @Test
+    void flushesEachKeySeparately() {
+        Coalescer<String, String> coalescer = coalescer(true, 100);
+
+        coalescer.submit("uid-1", "a").subscribe();
+        coalescer.submit("uid-2", "b").subscribe();
+
+        // La llamada en curso de uid-1 no retrasa la de uid-2
+        assertEquals(List.of("uid-1", "uid-2"), flushedKeys);
+    }
+
+    @Test
+    void sendsAtMostMaxSizeItemsPerCall() {
+        Coalescer<String, String> coalescer = coalescer(true, 2);
+
+        Mono<Void> all = Mono.when(coalescer.submit("uid-1", "a"), coalescer.submit("uid-1", "b"),
+                coalescer.submit("uid-1", "c"), coalescer.submit("uid-1", "d")).cache();
+        all.subscribe();
+        complete(0, Map.of());
+        complete(1, Map.of());
+        complete(2, Map.of());
+
+        all.block(TIMEOUT);
+        assertEquals(List.of(List.of("a"), List.of("b", "c"), List.of("d")), flushedItems);
+    }
+
+    @Test
+    void deliversEachPositionalErrorToItsOwnRequest() {
+        Coalescer<String, String> coalescer = coalescer(true, 100);
+
+        coalescer.submit("uid-1", "a").subscribe();
+        Mono<Void> second = coalescer.submit("uid-1", "b").cache();
+        Mono<Void> third = coalescer.submit("uid-1", "c").cache();
+        second.subscribe(v -> { }, e -> { });
+        third.subscribe(v -> { }, e -> { });
+        complete(0, Map.of());
+        complete(1, Map.of(1, "EMAIL_EXISTS"));
+
+        StepVerifier.create(second).expectComplete().verify(TIMEOUT);
+        StepVerifier.create(third)
+                .expectErrorSatisfies(e -> assertEquals("EMAIL_EXISTS", e.getMessage()))
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void aFailedCallFailsItsRequestsAndTheNextOnesStillRun() {
+        Coalescer<String, String> coalescer = coalescer(true, 100);
+
+        Mono<Void> first = coalescer.submit("uid-1", "a").cache();
+        Mono<Void> second = coalescer.submit("uid-1", "b").cache();
+        first.subscribe(v -> { }, e -> { });
+        second.subscribe(v -> { }, e -> { });
+        calls.get(0).tryEmitError(new IllegalStateException("UNAVAILABLE"));
+        complete(1, Map.of());
+
+        StepVerifier.create(first).expectErrorMessage("UNAVAILABLE").verify(TIMEOUT);
+        StepVerifier.create(second).expectComplete().verify(TIMEOUT);
+    }
+
+    @Test
+    void aCancelledRequestDoesNotCancelTheSharedCall() {
+        Coalescer<String, String> coalescer = coalescer(true, 100);
+
+        coalescer.submit("uid-1", "a").subscribe();
+        Disposable cancelled = coalescer.submit("uid-1", "b").subscribe();
+        Mono<Void> kept = coalescer.submit("uid-1", "c").cache();
+        kept.subscribe();
+        cancelled.dispose();
+        complete(0, Map.of());
+        complete(1, Map.of());
+
+        kept.block(TIMEOUT);
+        assertEquals(List.of(List.of("a"), List.of("b", "c")), flushedItems);
+    }
+
+    @Test
+    void disabledCallsThroughWithoutGrouping() {
+        Coalescer<String, String> coalescer = coalescer(false, 100);
+
+        coalescer.submit("uid-1", "a").subscribe();
+        coalescer.submit("uid-1", "b").subscribe();
+
+        assertEquals(List.of(List.of("a"), List.of("b")), flushedItems);
+    }
+
+    private void complete(int call, Map<Integer, String> errors) {
+        calls.get(call).tryEmitValue(errors);
+    }
+
+    private Coalescer<String, String> coalescer(boolean enabled, int maxSize) {
+        return new Coalescer<>("test", enabled, maxSize, (key, items) -> {
+            flushedKeys.add(key);
+            flushedItems.add(List.copyOf(items));
+            Sinks.One<Map<Integer, String>> call = Sinks.one();
+            calls.add(call);
+            return call.asMono();
+        }, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,45 @@
+package pe.edu.vallegrande.user_service.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageVariantTest {
+
+    private static final String HASH = "a".repeat(64);
+    private static final String ORIGINAL_URL = "https://storage.googleapis.com/bucket/profiles/" + HASH + "/original.png";
+
+    @Test
+    void resolvesVariantsNextToTheOriginal() {
+        String folder = "https://storage.googleapis.com/bucket/profiles/" + HASH + "/";
+        assertEquals(folder + "thumbnail.jpg", ImageVariant.THUMBNAIL.resolve(ORIGINAL_URL));
+        assertEquals(folder + "medium.jpg", ImageVariant.MEDIUM.resolve(ORIGINAL_URL));
+        assertEquals(ORIGINAL_URL, ImageVariant.ORIGINAL.resolve(ORIGINAL_URL));
+    }
+
+    @Test
+    void returnsLegacyUrlsUnchanged() {
+        // Subidas anteriores a las variantes: no hay miniaturas que servir
+        String legacy = "https://storage.googleapis.com/bucket/profiles/42.png";
+        assertEquals(legacy, ImageVariant.THUMBNAIL.resolve(legacy));
+        assertFalse(ImageVariant.isContentAddressed(legacy));
+    }
+
+    @Test
+    void requiresAFullContentHash() {
+        String shortHash = "https://storage.googleapis.com/bucket/profiles/abc123/original.png";
+        String upperCase = "https://storage.googleapis.com/bucket/profiles/" + "A".repeat(64) + "/original.png";
+        assertEquals(shortHash, ImageVariant.MEDIUM.resolve(shortHash));
+        assertEquals(upperCase, ImageVariant.MEDIUM.resolve(upperCase));
+        assertTrue(ImageVariant.isContentAddressed(ORIGINAL_URL));
+    }
+
+    @Test
+    void handlesMissingUrl() {
+        assertNull(ImageVariant.THUMBNAIL.resolve(null));
+        assertFalse(ImageVariant.isContentAddressed(null));
+    }
+}
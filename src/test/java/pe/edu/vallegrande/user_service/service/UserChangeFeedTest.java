@@ -0,0 +1,140 @@
+package pe.edu.vallegrande.user_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.user_service.dto.UserChangeEventDto;
+import pe.edu.vallegrande.user_service.dto.UserChangeType;
+import pe.edu.vallegrande.user_service.dto.UserDto;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserChangeFeedTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void replaysEventsAfterLastEventId() {
+        UserChangeFeed feed = new UserChangeFeed(10, new SimpleMeterRegistry());
+        String first = firstEventId(feed, () -> feed.created(user(1)));
+        feed.updated(user(1));
+        feed.deleted(user(1));
+
+        List<UserChangeEventDto> missed = feed.changes(first).take(2).collectList().block(TIMEOUT);
+
+        assertEquals(List.of(2L, 3L), missed.stream().map(UserChangeEventDto::getSequence).toList());
+        assertEquals(UserChangeType.UPDATED, missed.get(0).getType());
+        assertEquals(UserChangeType.DELETED, missed.get(1).getType());
+        assertNull(missed.get(1).getUser());
+    }
+
+    @Test
+    void continuesWithLiveEventsAfterTheReplay() {
+        UserChangeFeed feed = new UserChangeFeed(10, new SimpleMeterRegistry());
+        String first = firstEventId(feed, () -> feed.created(user(1)));
+        feed.updated(user(1));
+
+        StepVerifier.create(feed.changes(first))
+                .assertNext(event -> assertEquals(2L, event.getSequence()))
+                .then(() -> feed.roleChanged(user(1)))
+                .assertNext(event -> {
+                    assertEquals(3L, event.getSequence());
+                    assertEquals(UserChangeType.ROLE_CHANGED, event.getType());
+                })
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void requestsResyncWhenLastEventIdLeftTheWindow() {
+        UserChangeFeed feed = new UserChangeFeed(3, new SimpleMeterRegistry());
+        String first = firstEventId(feed, () -> feed.created(user(1)));
+        for (int i = 0; i < 5; i++) {
+            feed.updated(user(1));
+        }
+
+        StepVerifier.create(feed.changes(first))
+                .assertNext(event -> {
+                    assertEquals(UserChangeType.RESYNC, event.getType());
+                    assertEquals(6L, event.getSequence());
+                })
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void requestsResyncForIdsOfAnotherInstance() {
+        UserChangeFeed feed = new UserChangeFeed(10, new SimpleMeterRegistry());
+        feed.created(user(1));
+
+        // Id de un proceso anterior: su secuencia no se puede comparar con la de esta instancia
+        StepVerifier.create(feed.changes("otra-1"))
+                .assertNext(event -> assertEquals(UserChangeType.RESYNC, event.getType()))
+                .thenCancel()
+                .verify(TIMEOUT);
+        StepVerifier.create(feed.changes("sin-formato"))
+                .assertNext(event -> assertEquals(UserChangeType.RESYNC, event.getType()))
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void emitsOnlyNewEventsWithoutLastEventId() {
+        UserChangeFeed feed = new UserChangeFeed(10, new SimpleMeterRegistry());
+        feed.created(user(1));
+
+        StepVerifier.create(feed.changes(null))
+                .then(() -> feed.emailChanged(user(1), "antes@vallegrande.edu.pe"))
+                .assertNext(event -> {
+                    assertEquals(UserChangeType.EMAIL_CHANGED, event.getType());
+                    assertEquals(2L, event.getSequence());
+                    assertEquals("antes@vallegrande.edu.pe", event.getPreviousEmail());
+                })
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void storesRemoteChangesAndResyncInTheWindow() {
+        UserChangeFeed feed = new UserChangeFeed(10, new SimpleMeterRegistry());
+        String first = firstEventId(feed, () -> feed.created(user(1)));
+        feed.remote(UserChangeType.UPDATED, 2, "uid-2", 4L, null);
+        feed.resync();
+
+        List<UserChangeEventDto> missed = feed.changes(first).take(2).collectList().block(TIMEOUT);
+
+        UserChangeEventDto remote = missed.get(0);
+        assertEquals(UserChangeType.UPDATED, remote.getType());
+        assertEquals(2, remote.getUserId());
+        assertEquals("uid-2", remote.getFirebaseUid());
+        assertEquals(4L, remote.getVersion());
+        assertNull(remote.getUser());
+        assertEquals(UserChangeType.RESYNC, missed.get(1).getType());
+        assertEquals(3L, missed.get(1).getSequence());
+    }
+
+    /**
+     * Publica con un suscriptor conectado y devuelve el id del evento, como lo recibiría un cliente SSE.
+     */
+    private static String firstEventId(UserChangeFeed feed, Runnable publish) {
+        UserChangeEventDto[] received = new UserChangeEventDto[1];
+        StepVerifier.create(feed.changes(null))
+                .then(publish)
+                .consumeNextWith(event -> received[0] = event)
+                .thenCancel()
+                .verify(TIMEOUT);
+        return received[0].getId();
+    }
+
+    private static UserDto user(int id) {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setFirebaseUid("uid-" + id);
+        user.setVersion(1L);
+        return user;
+    }
+}
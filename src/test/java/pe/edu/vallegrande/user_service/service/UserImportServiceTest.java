@@ -0,0 +1,145 @@
+package pe.edu.vallegrande.user_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.user_service.cache.EmailExistenceFilter;
+import pe.edu.vallegrande.user_service.dto.BulkItemResultDto;
+import pe.edu.vallegrande.user_service.identity.InMemoryIdentityProvider;
+import pe.edu.vallegrande.user_service.model.User;
+import pe.edu.vallegrande.user_service.repository.UsersRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceTest {
+
+    private static final String HEADER = "name,lastName,documentType,documentNumber,cellPhone,email,password,role";
+
+    @Test
+    void splitsPlainFields() {
+        assertEquals(List.of("Ana", "Quispe", "DNI"), UserImportService.parseCsvLine("Ana,Quispe,DNI"));
+    }
+
+    @Test
+    void keepsCommasInsideQuotes() {
+        assertEquals(List.of("Quispe, Ana", "DNI"), UserImportService.parseCsvLine("\"Quispe, Ana\",DNI"));
+    }
+
+    @Test
+    void unescapesDoubledQuotes() {
+        assertEquals(List.of("Ana \"la jefa\"", "x"), UserImportService.parseCsvLine("\"Ana \"\"la jefa\"\"\",x"));
+    }
+
+    @Test
+    void keepsEmptyAndTrailingFields() {
+        assertEquals(List.of("", "a", "", ""), UserImportService.parseCsvLine(",a,,"));
+        assertEquals(List.of(""), UserImportService.parseCsvLine(""));
+        assertEquals(List.of("", "b"), UserImportService.parseCsvLine("\"\",b"));
+    }
+
+    @Test
+    void importsValidRowsAndReportsEachFailure() {
+        UsersRepository usersRepository = usersRepository(Set.of("existe@vallegrande.edu.pe"));
+        UserImportService service = service(usersRepository, 500);
+
+        List<BulkItemResultDto> results = importCsv(service,
+                HEADER,
+                "Ana,Quispe,DNI,70000001,999000001,ana@vallegrande.edu.pe,secreto1,USER|ADMIN",
+                "Luis,Flores,DNI,70000002,999000002,existe@vallegrande.edu.pe,secreto2,USER",
+                "Rosa,Torres,DNI,70000003,999000003,rosa@vallegrande.edu.pe,123,USER",
+                "Jorge,Díaz,DNI");
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("El correo ya está registrado", results.get(1).getMessage());
+        assertEquals("La contraseña debe tener al menos 6 caracteres", results.get(2).getMessage());
+        assertEquals("Se esperaban 8 columnas y hay 3", results.get(3).getMessage());
+    }
+
+    @Test
+    void rejectsAnEmailRepeatedInAnotherBatchOfTheSameImport() {
+        // Lotes de una fila procesados en paralelo: la comprobación no puede limitarse a cada lote
+        UserImportService service = service(usersRepository(Set.of()), 1);
+
+        List<BulkItemResultDto> results = importCsv(service,
+                HEADER,
+                "Ana,Quispe,DNI,70000001,999000001,ana@vallegrande.edu.pe,secreto1,USER",
+                "Ana,Quispe,DNI,70000001,999000001,ana@vallegrande.edu.pe,secreto1,USER");
+
+        assertEquals(2, results.size());
+        assertEquals(1, results.stream().filter(BulkItemResultDto::isSuccess).count());
+        assertEquals("Email duplicado en la importación",
+                results.stream().filter(result -> !result.isSuccess()).findFirst().orElseThrow().getMessage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void matchesInsertedRowsByUidWhateverTheirOrder() {
+        // Postgres no garantiza el orden de RETURNING: el repositorio devuelve las filas al revés
+        UsersRepository usersRepository = usersRepository(Set.of());
+        when(usersRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<User> inserted = new ArrayList<>((List<User>) invocation.getArgument(0));
+            Collections.reverse(inserted);
+            AtomicInteger ids = new AtomicInteger();
+            return Flux.fromIterable(inserted).doOnNext(user -> user.setId(ids.incrementAndGet()));
+        });
+        UserImportService service = service(usersRepository, 500);
+
+        List<BulkItemResultDto> results = importCsv(service,
+                HEADER,
+                "Ana,Quispe,DNI,70000001,999000001,ana@vallegrande.edu.pe,secreto1,USER",
+                "Rosa,Torres,DNI,70000003,999000003,rosa@vallegrande.edu.pe,secreto3,USER");
+
+        assertEquals("ana@vallegrande.edu.pe", results.get(0).getKey());
+        assertEquals(2, results.get(0).getId());
+        assertEquals("rosa@vallegrande.edu.pe", results.get(1).getKey());
+        assertEquals(1, results.get(1).getId());
+    }
+
+    private static List<BulkItemResultDto> importCsv(UserImportService service, String... lines) {
+        List<BulkItemResultDto> results = service.importCsv(Flux.just(lines)).collectList().block(Duration.ofSeconds(10));
+        assertNotNull(results);
+        results.sort(Comparator.comparing(BulkItemResultDto::getIndex));
+        return results;
+    }
+
+    private static UserImportService service(UsersRepository usersRepository, int batchSize) {
+        PasswordHashingService passwordHashingService = mock(PasswordHashingService.class);
+        when(passwordHashingService.encode(any())).thenReturn(Mono.just("$2a$10$hash"));
+        when(passwordHashingService.usesBcrypt()).thenReturn(true);
+        EmailExistenceFilter emailExistenceFilter = mock(EmailExistenceFilter.class);
+        when(emailExistenceFilter.mightContain(any())).thenReturn(true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new UserImportService(usersRepository, passwordHashingService, new InMemoryIdentityProvider(Duration.ZERO),
+                meterRegistry, emailExistenceFilter, new UserChangeFeed(100, meterRegistry),
+                batchSize, Duration.ofMillis(50), 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static UsersRepository usersRepository(Set<String> existingEmails) {
+        UsersRepository usersRepository = mock(UsersRepository.class);
+        when(usersRepository.findExistingEmails(anyCollection())).thenAnswer(invocation -> Flux.fromIterable(
+                (Collection<String>) invocation.getArgument(0)).filter(existingEmails::contains));
+        AtomicInteger ids = new AtomicInteger();
+        when(usersRepository.insertAll(anyList())).thenAnswer(invocation -> Flux.fromIterable((List<User>) invocation.getArgument(0))
+                .doOnNext(user -> user.setId(ids.incrementAndGet())));
+        return usersRepository;
+    }
+}